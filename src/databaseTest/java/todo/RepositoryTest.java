@@ -1,11 +1,16 @@
 package todo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterEach;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -47,4 +52,197 @@ public class RepositoryTest {
 
         assertThat(allTodos).isEmpty();
     }
+
+    @Test
+    public void shouldPatchATodoInPlaceAndReturnTheUpdatedRow() {
+        Todo saved = this.entityManager.persistAndFlush(new Todo(null, "a todo", false, 3));
+
+        Todo patched = this.todoRepository.patch(saved.getId(), new TodoPatchRequest(null, true, null), null)
+                .orElseThrow();
+
+        assertThat(patched).isEqualTo(new Todo(saved.getId(), "a todo", true, 3));
+        assertThat(patched.getVersion()).isEqualTo(saved.getVersion() + 1);
+    }
+
+    @Test
+    public void shouldNotPatchATodoThatMovedPastTheExpectedVersion() {
+        Todo saved = this.entityManager.persistAndFlush(new Todo("a todo"));
+
+        assertThat(this.todoRepository.patch(saved.getId(), new TodoPatchRequest("first", null, null),
+                saved.getVersion())).isPresent();
+        assertThat(this.todoRepository.patch(saved.getId(), new TodoPatchRequest("second", null, null),
+                saved.getVersion())).isEmpty();
+    }
+
+    @Test
+    public void shouldReportZeroRowsWhenDeletingAMissingTodo() {
+        assertThat(this.todoRepository.removeById(Long.MAX_VALUE)).isZero();
+        assertThat(this.todoRepository.patch(Long.MAX_VALUE, new TodoPatchRequest("x", null, null), null)).isEmpty();
+    }
+
+    @Test
+    public void shouldPageThroughFilteredTodosByOrderWithUnorderedOnesLast() {
+        Todo unordered = this.entityManager.persist(new Todo(null, "task without order", false, null));
+        Todo second = this.entityManager.persist(new Todo(null, "task two", false, 2));
+        Todo first = this.entityManager.persist(new Todo(null, "task one", false, 1));
+        this.entityManager.persist(new Todo(null, "task done", true, 0));
+        this.entityManager.persist(new Todo(null, "other", false, 3));
+        this.entityManager.flush();
+
+        TodoQuery query = new TodoQuery(false, "task", TodoQuery.Sort.ORDER);
+        List<TodoView> firstPage = this.todoRepository.findPage(query, null, 2);
+        List<TodoView> secondPage = this.todoRepository.findPage(query, TodoQuery.Cursor.after(firstPage.get(1)), 2);
+
+        assertThat(firstPage).extracting(TodoView::id).containsExactly(first.getId(), second.getId());
+        assertThat(secondPage).extracting(TodoView::id).containsExactly(unordered.getId());
+    }
+
+    @Test
+    public void shouldTreatLikeWildcardsInATitlePrefixLiterally() {
+        this.entityManager.persist(new Todo("100% done"));
+        this.entityManager.persist(new Todo("1000 things"));
+        this.entityManager.flush();
+
+        List<TodoView> matches = this.todoRepository.findPage(new TodoQuery(null, "100%", TodoQuery.Sort.ID), null, 10);
+
+        assertThat(matches).extracting(TodoView::title).containsExactly("100% done");
+    }
+
+    @Test
+    public void shouldFindTodosContainingEverySearchedWord() {
+        this.entityManager.persist(new Todo("Buy milk and bread"));
+        this.entityManager.persist(new Todo("Buy a new bike"));
+        this.entityManager.persist(new Todo("Bake bread"));
+        this.entityManager.flush();
+
+        assertThat(this.todoRepository.search("buy bread", 10, 0))
+                .extracting(TodoView::title)
+                .containsExactly("Buy milk and bread");
+        assertThat(this.todoRepository.search("bread", 1, 1)).hasSize(1);
+    }
+
+    @Test
+    public void shouldReadATodoAsAViewWithoutManagingIt() {
+        Todo saved = this.entityManager.persistAndFlush(new Todo(null, "a todo", true, 7));
+        this.entityManager.clear();
+
+        assertThat(this.todoRepository.findViewById(saved.getId()))
+                .contains(new TodoView(saved.getId(), "a todo", true, 7, saved.getVersion()));
+        assertThat(this.entityManager.getEntityManager().contains(saved)).isFalse();
+        assertThat(this.todoRepository.findViewById(Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    public void shouldReorderTodosWithGapsAndRejectUnknownIds() {
+        Todo first = this.entityManager.persist(new Todo("first"));
+        Todo second = this.entityManager.persist(new Todo("second"));
+        this.entityManager.flush();
+
+        List<TodoView> reordered = this.todoRepository.reorder(List.of(second.getId(), first.getId()));
+
+        assertThat(reordered).extracting(TodoView::id).containsExactly(second.getId(), first.getId());
+        assertThat(reordered).extracting(TodoView::order)
+                .containsExactly(TodoRepository.ORDER_GAP, 2 * TodoRepository.ORDER_GAP);
+        assertThatThrownBy(() -> this.todoRepository.reorder(List.of(first.getId(), Long.MAX_VALUE)))
+                .isInstanceOf(JdbcUpdateAffectedIncorrectNumberOfRowsException.class);
+    }
+
+    @Test
+    public void shouldMoveATodoBetweenItsNeighboursAndRenumberOnlyWhenThereIsNoGap() {
+        Todo first = this.entityManager.persist(new Todo(null, "first", false, 10));
+        Todo second = this.entityManager.persist(new Todo(null, "second", false, 11));
+        Todo third = this.entityManager.persist(new Todo(null, "third", false, 20));
+        this.entityManager.flush();
+        TodoQuery byOrder = new TodoQuery(null, null, TodoQuery.Sort.ORDER);
+
+        TodoRepositoryCustom.Move squeezed = this.todoRepository.move(third.getId(), first.getId()).orElseThrow();
+        assertThat(squeezed.renumbered()).isTrue();
+        assertThat(squeezed.todo().order()).isEqualTo(TodoRepository.ORDER_GAP + TodoRepository.ORDER_GAP / 2);
+        assertThat(this.todoRepository.findPage(byOrder, null, 10))
+                .extracting(TodoView::id, TodoView::order)
+                .containsExactly(
+                        tuple(first.getId(), TodoRepository.ORDER_GAP),
+                        tuple(third.getId(), TodoRepository.ORDER_GAP + TodoRepository.ORDER_GAP / 2),
+                        tuple(second.getId(), 2 * TodoRepository.ORDER_GAP));
+
+        TodoRepositoryCustom.Move between = this.todoRepository.move(second.getId(), first.getId()).orElseThrow();
+        assertThat(between.renumbered()).isFalse();
+        assertThat(between.todo().order()).isEqualTo(TodoRepository.ORDER_GAP + TodoRepository.ORDER_GAP / 4);
+        assertThat(this.todoRepository.findPage(byOrder, null, 10)).extracting(TodoView::id)
+                .containsExactly(first.getId(), second.getId(), third.getId());
+    }
+
+    @Test
+    public void shouldPageByOrderIntoTheTodosWithoutAnOrder() {
+        Todo first = this.entityManager.persist(new Todo(null, "first", false, 1));
+        Todo second = this.entityManager.persist(new Todo(null, "second", false, 2));
+        Todo third = this.entityManager.persist(new Todo(null, "third", false, null));
+        Todo fourth = this.entityManager.persist(new Todo(null, "fourth", false, null));
+        this.entityManager.flush();
+        TodoQuery query = new TodoQuery(null, null, TodoQuery.Sort.ORDER);
+
+        List<TodoView> page = this.todoRepository.findPage(query, new TodoQuery.Cursor(1, first.getId()), 2);
+        assertThat(page).extracting(TodoView::id).containsExactly(second.getId(), third.getId());
+
+        page = this.todoRepository.findPage(query, TodoQuery.Cursor.after(page.get(1)), 2);
+        assertThat(page).extracting(TodoView::id).containsExactly(fourth.getId());
+    }
+
+    @Test
+    public void shouldNotRenumberAnythingWhenMovingAMissingTodo() {
+        Todo first = this.entityManager.persist(new Todo(null, "first", false, 10));
+        this.entityManager.persist(new Todo(null, "second", false, 11));
+        this.entityManager.flush();
+
+        assertThat(this.todoRepository.move(Long.MAX_VALUE, first.getId())).isEmpty();
+
+        List<TodoView> ordered = this.todoRepository.findPage(new TodoQuery(null, null, TodoQuery.Sort.ORDER), null, 10);
+        assertThat(ordered).extracting(TodoView::order).containsExactly(10, 11);
+    }
+
+    @Test
+    public void shouldPatchManyTodosInOneBatchAndSkipUnknownIds() {
+        Todo first = this.entityManager.persist(new Todo(null, "first", false, 1));
+        Todo second = this.entityManager.persist(new Todo(null, "second", false, 2));
+        this.entityManager.flush();
+
+        Map<Long, TodoView> updated = this.todoRepository.patchAll(Map.of(
+                first.getId(), new TodoPatchRequest(null, true, null),
+                second.getId(), new TodoPatchRequest("renamed", null, null),
+                Long.MAX_VALUE, new TodoPatchRequest(null, true, null)));
+
+        assertThat(updated).containsOnlyKeys(first.getId(), second.getId());
+        assertThat(updated.get(first.getId()).completed()).isTrue();
+        assertThat(updated.get(first.getId()).order()).isEqualTo(1);
+        assertThat(updated.get(second.getId()).title()).isEqualTo("renamed");
+        assertThat(updated.get(second.getId()).version()).isEqualTo(second.getVersion() + 1);
+    }
+
+    @Test
+    public void shouldMoveOnlyCompletedTodosIntoTheArchive() {
+        Todo done = this.entityManager.persistAndFlush(new Todo(null, "done", true, null));
+        Todo open = this.entityManager.persistAndFlush(new Todo(null, "open", false, null));
+        this.entityManager.clear();
+
+        Instant now = Instant.now();
+        this.todoRepository.prepareArchive(now);
+        List<Long> archived = this.todoRepository.archiveCompleted(now.plusSeconds(60), now, 0, 10);
+
+        assertThat(archived).containsExactly(done.getId());
+        assertThat(this.todoRepository.findById(done.getId())).isEmpty();
+        assertThat(this.todoRepository.findById(open.getId())).isPresent();
+        assertThat(this.todoRepository.findArchivedPage(done.getId() - 1, 10))
+                .extracting(TodoView::title)
+                .containsExactly("done");
+    }
+
+    @Test
+    public void shouldNotArchiveTodosCompletedAfterTheCutoff() {
+        this.entityManager.persistAndFlush(new Todo(null, "just done", true, null));
+
+        Instant now = Instant.now();
+        List<Long> archived = this.todoRepository.archiveCompleted(now.minusSeconds(60), now, 0, 10);
+
+        assertThat(archived).isEmpty();
+    }
 }
@@ -0,0 +1,65 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item cost of building a todo's self link: resolving it through
+ * {@code WebMvcLinkBuilder} for every todo versus appending the id to a base URL that
+ * was resolved once for the request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoLinkBenchmark {
+    private Todo todo;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/todos");
+        request.setServerName("todo.example.com");
+        request.addHeader("X-Forwarded-Proto", "https");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        todo = new Todo(42L, "Clean kitchen", false, 1);
+        baseUrl = TodoResponse.baseUrl();
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public String linkToPerTodo() {
+        return todo.getUrl();
+    }
+
+    @Benchmark
+    public TodoResponse responsePerTodoResolvingBaseUrl() {
+        return TodoResponse.from(todo);
+    }
+
+    @Benchmark
+    public TodoResponse responsePerTodoWithCachedBaseUrl() {
+        return TodoResponse.from(todo, baseUrl);
+    }
+}
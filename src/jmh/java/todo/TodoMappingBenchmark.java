@@ -0,0 +1,53 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-todo mappings on the request path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoMappingBenchmark {
+    private static final String BASE_URL = "https://todo.example.com/todos";
+
+    private Todo existing;
+    private TodoPatchRequest titleOnly;
+    private TodoPatchRequest allFields;
+
+    @Setup
+    public void setUp() {
+        existing = new Todo(42L, "Clean kitchen", false, 1, 3);
+        titleOnly = new TodoPatchRequest("Clean the whole kitchen", null, null);
+        allFields = new TodoPatchRequest("Clean the whole kitchen", true, 2);
+    }
+
+    @Benchmark
+    public TodoResponse todoResponseFrom() {
+        return TodoResponse.from(existing, BASE_URL);
+    }
+
+    @Benchmark
+    public Todo todoFromPartialPatch() {
+        return Todo.from(titleOnly, existing);
+    }
+
+    @Benchmark
+    public Todo todoFromFullPatch() {
+        return Todo.from(allFields, existing);
+    }
+}
@@ -0,0 +1,104 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository round trips against the in-memory H2 database in PostgreSQL mode, i.e. the
+ * {@code h2} profile, so the numbers are reproducible without any external service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoRepositoryBenchmark {
+    private static final int ROWS = 10_000;
+    private static final int PAGE_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private TodoRepository repository;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .profiles("h2")
+                .run("--server.port=0", "--logging.level.root=WARN");
+        repository = context.getBean(TodoRepository.class);
+        repository.deleteAllInBatch();
+
+        List<Todo> todos = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            todos.add(new Todo(null, "Todo number " + i, i % 3 == 0, i));
+        }
+        firstId = repository.saveAll(todos).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    @Benchmark
+    public Optional<Todo> findById() {
+        return repository.findById(randomId());
+    }
+
+    /**
+     * Same row as {@link #findById()} as a constructor projection: no managed entity and
+     * no dirty-checking snapshot.
+     */
+    @Benchmark
+    public Optional<TodoView> findViewById() {
+        return repository.findViewById(randomId());
+    }
+
+    /**
+     * A {@code GET /todos} page starting at a random position; costs the same however deep.
+     */
+    @Benchmark
+    public List<TodoView> keysetPage() {
+        return repository.findPage(new TodoQuery(null, null, TodoQuery.Sort.ID),
+                new TodoQuery.Cursor(null, randomId()), PAGE_SIZE);
+    }
+
+    /**
+     * Same as {@link #keysetPage()} with {@code sort=order}; every row's order is its
+     * position, so the cursor is as deep as the id.
+     */
+    @Benchmark
+    public List<TodoView> orderedKeysetPage() {
+        long id = randomId();
+        return repository.findPage(new TodoQuery(null, null, TodoQuery.Sort.ORDER),
+                new TodoQuery.Cursor((int) (id - firstId), id), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Optional<Todo> patch() {
+        return repository.patch(randomId(), new TodoPatchRequest(null, true, null), null);
+    }
+}
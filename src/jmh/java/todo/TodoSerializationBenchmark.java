@@ -0,0 +1,51 @@
+package todo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of {@code GET /todos} payloads of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoSerializationBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<TodoResponse> payload;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().writerFor(List.class);
+        payload = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            Todo todo = new Todo(id, "Todo number " + id, id % 3 == 0, (int) id);
+            payload.add(TodoResponse.from(todo, "https://todo.example.com/todos"));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return writer.writeValueAsBytes(payload);
+    }
+}
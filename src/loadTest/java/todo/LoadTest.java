@@ -0,0 +1,201 @@
+package todo;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives a configurable mix of TodoBackend operations from many concurrent clients
+ * against the application running on the in-memory H2 profile, and reports throughput
+ * and latency percentiles per operation.
+ * <p>
+ * Tuned with system properties passed to {@code ./gradlew loadTest}:
+ * {@code -Dload.clients=64 -Dload.warmup=5 -Dload.duration=30
+ * -Dload.mix=create:10,list:40,get:30,patch:15,delete:5 -Dload.seed=500}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(profiles = "test")
+public class LoadTest {
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final int KNOWN_IDS = 4096;
+
+    enum Operation {
+        CREATE, LIST, GET, PATCH, DELETE
+    }
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    // Ring of recently created ids that GET, PATCH and DELETE pick from.
+    private final AtomicLongArray ids = new AtomicLongArray(KNOWN_IDS);
+    private final AtomicLong created = new AtomicLong();
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+    @Test
+    public void shouldSustainTheConfiguredMixAndReportLatencies() throws Exception {
+        int clients = Integer.getInteger("load.clients", 32);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 5));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 20));
+        Map<Operation, Integer> mix = parseMix(System.getProperty("load.mix", "create:10,list:40,get:30,patch:15,delete:5"));
+
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new AtomicLong());
+        }
+        for (int i = 0; i < Integer.getInteger("load.seed", 200); i++) {
+            create();
+        }
+
+        run(clients, mix, warmup);
+        latencies.values().forEach(Histogram::reset);
+        errors.values().forEach(count -> count.set(0));
+        run(clients, mix, duration);
+
+        String report = report(clients, duration);
+        System.out.println(report);
+        Path reportFile = Path.of("build", "reports", "load", "load-test.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.writeString(reportFile, report);
+
+        assertThat(errors.values()).allSatisfy(count -> assertThat(count.get()).isZero());
+    }
+
+    private void run(int clients, Map<Operation, Integer> mix, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        execute(pick(mix));
+                    }
+                    return null;
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        }
+    }
+
+    private void execute(Operation operation) {
+        long start = System.nanoTime();
+        try {
+            int status = switch (operation) {
+                case CREATE -> create();
+                case LIST -> send(HttpRequest.newBuilder(uri("/todos")).GET());
+                case GET -> send(HttpRequest.newBuilder(uri("/todos/" + anyId())).GET());
+                case PATCH -> send(HttpRequest.newBuilder(uri("/todos/" + anyId()))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"completed\": true}")));
+                case DELETE -> delete();
+            };
+            // A picked todo may already have been deleted by another client.
+            if (status >= 400 && status != 404) {
+                errors.get(operation).incrementAndGet();
+            }
+        } catch (IOException | InterruptedException e) {
+            errors.get(operation).incrementAndGet();
+        } finally {
+            latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    private int create() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/todos"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"title\": \"load test todo\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher id = ID.matcher(response.body());
+        if (id.find()) {
+            ids.set((int) (created.getAndIncrement() % KNOWN_IDS), Long.parseLong(id.group(1)));
+        }
+        return response.statusCode();
+    }
+
+    private int delete() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri("/todos/" + anyId())).DELETE());
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private long anyId() {
+        int known = (int) Math.min(created.get(), KNOWN_IDS);
+        return known == 0 ? 0L : ids.get(ThreadLocalRandom.current().nextInt(known));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static Operation pick(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private String report(int clients, Duration duration) {
+        StringBuilder report = new StringBuilder()
+                .append(String.format("%d clients for %ds%n", clients, duration.toSeconds()))
+                .append(String.format("%-8s %10s %10s %10s %10s %10s %10s %8s%n",
+                        "op", "count", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            report.append(String.format("%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                    operation.name().toLowerCase(),
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / (double) duration.toSeconds(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    errors.get(operation).get()));
+        }
+        return report.toString();
+    }
+}
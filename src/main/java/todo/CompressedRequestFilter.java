@@ -0,0 +1,241 @@
+package todo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Inflates request bodies sent with {@code Content-Encoding: gzip}, so bulk uploads such as
+ * {@code POST /todos/batch} can be compressed on the wire. The handler sees a plain body
+ * without the {@code Content-Encoding} and {@code Content-Length} headers. Reading more than
+ * {@code maxInflatedSize} bytes fails the read, which guards against compression bombs.
+ * Non-blocking reads through a {@link ReadListener} are supported too. Other codings are
+ * refused with 415.
+ */
+public class CompressedRequestFilter extends OncePerRequestFilter {
+    private final long maxInflatedSize;
+
+    public CompressedRequestFilter(long maxInflatedSize) {
+        this.maxInflatedSize = maxInflatedSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || encoding.isBlank() || encoding.trim().equalsIgnoreCase("identity")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!encoding.trim().equalsIgnoreCase("gzip") && !encoding.trim().equalsIgnoreCase("x-gzip")) {
+            response.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), "Unsupported Content-Encoding " + encoding);
+            return;
+        }
+        chain.doFilter(new InflatedRequest(request, maxInflatedSize), response);
+    }
+
+    private static final class InflatedRequest extends HttpServletRequestWrapper {
+        private final long maxInflatedSize;
+        private ServletInputStream body;
+
+        InflatedRequest(HttpServletRequest request, long maxInflatedSize) {
+            super(request);
+            this.maxInflatedSize = maxInflatedSize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                body = new InflatingInputStream(super.getInputStream(), maxInflatedSize);
+            }
+            return body;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return hidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return hidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !hidden(name))
+                    .toList());
+        }
+
+        private static boolean hidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * Inflates lazily, so that the gzip header is not read before the handler asks for the
+     * body. Blocking reads go straight through the inflater. A handler reading without
+     * blocking gets its {@link ReadListener} called once the whole compressed body has
+     * arrived; it is collected as it comes in and then inflated from memory, so reads never
+     * block on the network and {@link #isReady()} stays true.
+     */
+    private static final class InflatingInputStream extends ServletInputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final ServletInputStream raw;
+        private final long limit;
+        private InputStream in;
+        private long read;
+        private boolean finished;
+        private ReadListener listener;
+        private ByteArrayOutputStream compressed;
+        private volatile boolean received;
+        private boolean allDataReadPending;
+        private boolean delivering;
+
+        InflatingInputStream(ServletInputStream raw, long limit) {
+            this.raw = raw;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = inflater().read();
+            count(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = inflater().read(buffer, offset, length);
+            count(n);
+            return n;
+        }
+
+        private InputStream inflater() throws IOException {
+            if (in == null) {
+                if (listener == null) {
+                    in = new GZIPInputStream(raw);
+                } else if (received) {
+                    in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+                    compressed = null;
+                } else {
+                    throw new IllegalStateException("Compressed request body read before it was ready");
+                }
+            }
+            return in;
+        }
+
+        private void count(int n) throws IOException {
+            if (n < 0) {
+                finished = true;
+                // A handler that stopped reading inside onDataAvailable hears of the end here.
+                if (allDataReadPending && !delivering) {
+                    allDataReadPending = false;
+                    listener.onAllDataRead();
+                }
+                return;
+            }
+            read += n;
+            if (read > limit) {
+                throw new IOException("Inflated request body exceeds " + limit + " bytes");
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return listener == null || received;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            if (listener == null) {
+                throw new NullPointerException("listener");
+            }
+            if (this.listener != null || in != null) {
+                throw new IllegalStateException("The request body is already being read");
+            }
+            this.listener = listener;
+            this.compressed = new ByteArrayOutputStream();
+            raw.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    while (raw.isReady()) {
+                        int n = raw.read(buffer);
+                        if (n < 0) {
+                            return;
+                        }
+                        compressed.write(buffer, 0, n);
+                        if (compressed.size() > limit) {
+                            throw new IOException("Compressed request body exceeds " + limit + " bytes");
+                        }
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    received = true;
+                    allDataReadPending = true;
+                    delivering = true;
+                    try {
+                        listener.onDataAvailable();
+                    } finally {
+                        delivering = false;
+                    }
+                    if (finished && allDataReadPending) {
+                        allDataReadPending = false;
+                        listener.onAllDataRead();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    listener.onError(t);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            } else {
+                raw.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package todo;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The databases this application runs against. Used to pick vendor-specific SQL where
+ * the two dialects differ, e.g. {@code RETURNING} on PostgreSQL versus
+ * {@code FINAL TABLE (...)} on H2.
+ */
+enum DatabaseVendor {
+    POSTGRESQL,
+    H2;
+
+    static DatabaseVendor of(JdbcTemplate jdbcTemplate) {
+        return of(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName()));
+    }
+
+    static DatabaseVendor of(String productName) {
+        return "PostgreSQL".equalsIgnoreCase(productName) ? POSTGRESQL : H2;
+    }
+
+    /**
+     * Wraps a data-modifying statement so it returns the modified rows in the same round trip.
+     */
+    String returning(String statement, String columns) {
+        return switch (this) {
+            case POSTGRESQL -> statement + " RETURNING " + columns;
+            case H2 -> "SELECT " + columns + " FROM FINAL TABLE (" + statement + ")";
+        };
+    }
+
+    String nextValue(String sequence) {
+        return switch (this) {
+            case POSTGRESQL -> "nextval('" + sequence + "')";
+            case H2 -> "NEXT VALUE FOR " + sequence;
+        };
+    }
+}
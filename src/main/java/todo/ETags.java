@@ -0,0 +1,71 @@
+package todo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Strong entity tags derived from a todo's {@code version} column, or for the collection
+ * from the table-level revision counter.
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * A strong tag for one representation of a version or revision, such as the CBOR
+     * encoding or the gzipped JSON. Plain JSON keeps the bare {@link #of(long)} tag.
+     */
+    static String of(long version, String variant) {
+        return variant == null ? of(version) : "\"" + version + "-" + variant + "\"";
+    }
+
+    /**
+     * Parses an {@code If-Match} header into the version the client expects to modify.
+     * Returns {@code null} when the header is absent or {@code *}, meaning any version.
+     * A tag of any representation names its version; anything that cannot match a strong
+     * version tag fails the precondition.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            String value = tag.substring(1, tag.length() - 1);
+            int variant = value.indexOf('-');
+            try {
+                return Long.parseLong(variant < 0 ? value : value.substring(0, variant));
+            } catch (NumberFormatException e) {
+                // fall through: not one of our tags
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Todo has been modified");
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header matches the current tag, using the weak
+     * comparison that RFC 9110 prescribes for conditional GET.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
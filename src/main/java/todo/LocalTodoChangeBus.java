@@ -0,0 +1,28 @@
+package todo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process stand-in for {@link PostgresTodoChangeListener}, used with H2 and in tests.
+ * Loops this node's own writes back through the same wire format the PostgreSQL trigger
+ * uses, so listeners see exactly what they would receive from the database.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.invalidation.bus", havingValue = "local", matchIfMissing = true)
+public class LocalTodoChangeBus {
+    private final ApplicationEventPublisher events;
+
+    public LocalTodoChangeBus(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    @EventListener
+    public void on(TodoChangedEvent event) {
+        RemoteTodoChange.parse(RemoteTodoChange.format(event)).forEach(events::publishEvent);
+    }
+}
@@ -0,0 +1,135 @@
+package todo;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Cross-node invalidation bus on PostgreSQL. Listens on the {@code todo_changes} channel,
+ * which the {@code notify_todo_changes} trigger feeds for every write from any node, and
+ * republishes each notification locally as a {@link RemoteTodoChange}. Notifications are
+ * only delivered once the writer has committed, so each batch of them also advances the
+ * revision, in its own short transaction: writes that bypass the application (other tools,
+ * manual SQL) then change the {@code GET /todos} ETag too. Enabled with
+ * {@code todo.invalidation.bus=postgres}; holds one connection from the pool for as long
+ * as the application runs.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.invalidation.bus", havingValue = "postgres")
+public class PostgresTodoChangeListener implements SmartLifecycle {
+    static final String CHANNEL = "todo_changes";
+    private static final Logger log = LoggerFactory.getLogger(PostgresTodoChangeListener.class);
+
+    private final DataSource dataSource;
+    private final TodoRepository repository;
+    private final ApplicationEventPublisher events;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresTodoChangeListener(DataSource dataSource,
+                                      TodoRepository repository,
+                                      ApplicationEventPublisher events,
+                                      @Value("${todo.invalidation.poll-timeout:500ms}") Duration pollTimeout,
+                                      @Value("${todo.invalidation.reconnect-delay:2s}") Duration reconnectDelay) {
+        this.dataSource = dataSource;
+        this.repository = repository;
+        this.events = events;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = Thread.ofPlatform().name("todo-change-listener").daemon().start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listener.interrupt();
+        try {
+            listener.join(pollTimeout.multipliedBy(2).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                // Notifications sent while we were not listening are lost, so start from scratch.
+                advanceRevision();
+                events.publishEvent(RemoteTodoChange.cleared());
+
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications((int) pollTimeout.toMillis());
+                    if (received != null && received.length > 0) {
+                        advanceRevision();
+                        for (PGNotification notification : received) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the {} listener connection, reconnecting in {}", CHANNEL, reconnectDelay, e);
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the revision once for a batch of notifications. This node's own writes are
+     * bumped again, which only costs clients one revalidation.
+     */
+    private void advanceRevision() {
+        try {
+            repository.incrementRevision();
+        } catch (DataAccessException e) {
+            log.warn("Could not advance the todo revision for {} notifications", CHANNEL, e);
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            RemoteTodoChange.parse(payload).forEach(events::publishEvent);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed {} notification '{}'", CHANNEL, payload);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(reconnectDelay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package todo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A change to the todo table as seen by every node, received from the invalidation bus
+ * rather than made by this node's controller. It only identifies what changed; nodes
+ * evict or refresh their own copies.
+ * <p>
+ * On the wire a statement is encoded as {@code insert:1@0,2@0}, {@code update:12@3},
+ * {@code delete:5,6} or {@code clear}, matching the PostgreSQL trigger.
+ *
+ * @param id      the changed todo, {@code null} for {@link TodoChangedEvent.Type#CLEARED}
+ * @param version the version after the change, {@code null} for deletes and clears
+ */
+public record RemoteTodoChange(TodoChangedEvent.Type type, Long id, Long version) {
+    static final String CLEAR = "clear";
+
+    static RemoteTodoChange cleared() {
+        return new RemoteTodoChange(TodoChangedEvent.Type.CLEARED, null, null);
+    }
+
+    static List<RemoteTodoChange> parse(String payload) {
+        if (payload == null || payload.isBlank() || payload.equals(CLEAR)) {
+            return List.of(cleared());
+        }
+        int colon = payload.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Malformed todo change: " + payload);
+        }
+        TodoChangedEvent.Type type = switch (payload.substring(0, colon)) {
+            case "insert" -> TodoChangedEvent.Type.CREATED;
+            case "update" -> TodoChangedEvent.Type.UPDATED;
+            case "delete" -> TodoChangedEvent.Type.DELETED;
+            default -> throw new IllegalArgumentException("Malformed todo change: " + payload);
+        };
+
+        List<RemoteTodoChange> changes = new ArrayList<>();
+        for (String row : payload.substring(colon + 1).split(",")) {
+            int at = row.indexOf('@');
+            Long id = Long.valueOf(at < 0 ? row : row.substring(0, at));
+            Long version = at < 0 ? null : Long.valueOf(row.substring(at + 1));
+            changes.add(new RemoteTodoChange(type, id, version));
+        }
+        return changes;
+    }
+
+    static String format(TodoChangedEvent event) {
+        return switch (event.type()) {
+            case CREATED -> "insert:" + event.id() + "@" + event.todo().version();
+            case UPDATED -> "update:" + event.id() + "@" + event.todo().version();
+            case DELETED -> "delete:" + event.id();
+            case CLEARED -> CLEAR;
+        };
+    }
+}
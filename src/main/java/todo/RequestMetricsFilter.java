@@ -0,0 +1,70 @@
+package todo;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Records the number of SQL statements each request ran as the
+ * {@code todo.request.statements} summary, tagged like {@code http.server.requests},
+ * and logs requests slower than {@code todo.slow-request.threshold} together with that
+ * count.
+ */
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final MeterRegistry registry;
+    private final long slowThresholdNanos;
+
+    public RequestMetricsFilter(MeterRegistry registry, Duration slowThreshold) {
+        this.registry = registry;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try (StatementCountingDataSource.Count count = StatementCountingDataSource.start()) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                record(request, response, System.nanoTime() - start, count.statements());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long elapsedNanos, int statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("todo.request.statements")
+                .description("SQL statements executed per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .tag("status", Integer.toString(response.getStatus()))
+                .register(registry)
+                .record(statements);
+
+        if (elapsedNanos >= slowThresholdNanos) {
+            String query = request.getQueryString();
+            log.warn("Slow request {} {}{} -> {} took {} ms with {} SQL statements",
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    query != null ? "?" + query : "",
+                    response.getStatus(),
+                    Duration.ofNanos(elapsedNanos).toMillis(),
+                    statements);
+        }
+    }
+}
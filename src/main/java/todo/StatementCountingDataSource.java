@@ -0,0 +1,88 @@
+package todo;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Counts the JDBC statements prepared on the current thread while a {@link Count} is open,
+ * whether they come from Hibernate or from plain JDBC. Used to report the statement count
+ * per request, so that N+1 queries and extra round trips show up in metrics and logs.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    /**
+     * Starts counting on the current thread until the returned count is closed.
+     */
+    public static Count start() {
+        Count count = new Count();
+        CURRENT.set(count);
+        return count;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new CountingHandler(connection));
+    }
+
+    public static final class Count implements AutoCloseable {
+        private int statements;
+
+        private Count() {
+        }
+
+        public int statements() {
+            return statements;
+        }
+
+        @Override
+        public void close() {
+            CURRENT.remove();
+        }
+    }
+
+    private record CountingHandler(Connection target) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("unwrap") && args[0] == Connection.class) {
+                return target;
+            }
+            if (STATEMENT_FACTORIES.contains(method.getName())) {
+                Count count = CURRENT.get();
+                if (count != null) {
+                    count.statements++;
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package todo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -13,10 +19,17 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
 @Entity
 public class Todo {
-    private @Id @GeneratedValue(strategy = GenerationType.IDENTITY) Long id;
+    private @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_seq")
+    @SequenceGenerator(name = "todo_seq", sequenceName = "todo_seq", allocationSize = 50) Long id;
     private String title;
     private boolean completed;
     private Integer orderNumber;
+    private @Version long version;
+    /**
+     * When the todo was marked completed; decides when {@link TodoArchiver} moves it out.
+     */
+    private Instant completedAt;
     /**
      * No args constructor, needed for deserialization
      */
@@ -34,13 +47,35 @@ public class Todo {
         this.orderNumber = orderNumber;
     }
 
+    public Todo(Long id, String title, boolean completed, Integer orderNumber, long version) {
+        this(id, title, completed, orderNumber);
+        this.version = version;
+    }
+
     static Todo from(TodoPatchRequest updates, Todo existing) {
-        return new Todo(
+        Todo todo = new Todo(
                 existing.getId(),
                 Optional.ofNullable(updates.getTitle()).orElse(existing.getTitle()),
                 Optional.ofNullable(updates.getCompleted()).orElseGet(existing::isCompleted),
-                updates.getOrder()
+                Optional.ofNullable(updates.getOrder()).orElse(existing.getOrderNumber()),
+                existing.getVersion()
         );
+        todo.completedAt = existing.completedAt;
+        return todo;
+    }
+
+    /**
+     * Keeps {@code completedAt} in step with {@code completed}, as
+     * {@link TodoRepositoryCustomImpl#UPDATE} does for partial updates.
+     */
+    @PrePersist
+    @PreUpdate
+    void trackCompletion() {
+        if (!completed) {
+            completedAt = null;
+        } else if (completedAt == null) {
+            completedAt = Instant.now();
+        }
     }
 
     public String getTitle() {
@@ -76,6 +111,14 @@ public class Todo {
         return orderNumber;
     }
 
+    /**
+     * Optimistic-locking version, exposed to clients as the {@code ETag} header rather than in the body.
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     public String getUrl() {
         return linkTo(TodoController.class).slash(this.getId()).withSelfRel().getHref();
     }
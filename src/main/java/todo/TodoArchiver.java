@@ -0,0 +1,82 @@
+package todo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Periodically moves todos completed more than {@code todo.archive.after} ago into the
+ * archive table, {@code todo.archive.batch-size} rows per transaction, walking the table
+ * by id so that each batch only locks the rows it moves. Every batch advances the revision
+ * and is published as deletions, so caches and stream subscribers see the todos go.
+ */
+@Component
+@Profile("!reactive")
+@EnableScheduling
+@ConditionalOnProperty(name = "todo.archive.enabled", havingValue = "true")
+public class TodoArchiver {
+    private static final Logger log = LoggerFactory.getLogger(TodoArchiver.class);
+
+    private final TodoRepository repository;
+    private final ApplicationEventPublisher events;
+    private final Duration age;
+    private final int batchSize;
+
+    public TodoArchiver(TodoRepository repository,
+                        ApplicationEventPublisher events,
+                        @Value("${todo.archive.after:30d}") Duration age,
+                        @Value("${todo.archive.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.events = events;
+        this.age = age;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${todo.archive.interval:1h}", fixedDelayString = "${todo.archive.interval:1h}")
+    public void archive() {
+        try {
+            int archived = archiveCompletedBefore(Instant.now().minus(age));
+            if (archived > 0) {
+                log.info("Archived {} completed todos", archived);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Archiving completed todos failed; retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Archives every todo completed before the cutoff, batch by batch.
+     *
+     * @return the number of todos archived
+     */
+    public int archiveCompletedBefore(Instant cutoff) {
+        Instant archivedAt = Instant.now();
+        repository.prepareArchive(archivedAt);
+
+        int archived = 0;
+        long after = 0;
+        while (true) {
+            List<Long> ids = repository.archiveCompleted(cutoff, archivedAt, after, batchSize);
+            if (ids.isEmpty()) {
+                return archived;
+            }
+            repository.incrementRevision();
+            ids.forEach(id -> events.publishEvent(TodoChangedEvent.deleted(id)));
+            archived += ids.size();
+            if (ids.size() < batchSize) {
+                return archived;
+            }
+            after = ids.get(ids.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package todo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a batch request, identified by its position in the request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TodoBatchResult {
+    private final int index;
+    private final int status;
+    private final TodoResponse todo;
+    private final String error;
+    private final TodoView view;
+
+    private TodoBatchResult(int index, int status, TodoView view, String baseUrl, String error) {
+        this.index = index;
+        this.status = status;
+        this.view = view;
+        this.todo = view == null ? null : TodoResponse.from(view, baseUrl);
+        this.error = error;
+    }
+
+    static TodoBatchResult created(int index, TodoView todo, String baseUrl) {
+        return new TodoBatchResult(index, 201, todo, baseUrl, null);
+    }
+
+    static TodoBatchResult updated(int index, TodoView todo, String baseUrl) {
+        return new TodoBatchResult(index, 200, todo, baseUrl, null);
+    }
+
+    static TodoBatchResult rejected(int index, String error) {
+        return new TodoBatchResult(index, 400, null, null, error);
+    }
+
+    static TodoBatchResult notFound(int index, String error) {
+        return new TodoBatchResult(index, 404, null, null, error);
+    }
+
+    /**
+     * The todo as stored, for publishing change events; not serialized.
+     */
+    TodoView view() {
+        return view;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public TodoResponse getTodo() {
+        return todo;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,81 @@
+package todo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of {@link TodoView}s by id, in front of the repository for
+ * {@code GET /todos/{id}}. Caffeine evicts by size (W-TinyLFU) and age; writes update
+ * or invalidate entries synchronously through {@link TodoChangedEvent}s, and changes made
+ * on other nodes arrive as {@link RemoteTodoChange}s. Hit, miss and
+ * eviction counts are published as the {@code cache.*} metrics with {@code cache=todos}.
+ */
+@Component
+@Profile("!reactive")
+public class TodoCache {
+    static final String NAME = "todos";
+
+    private final Cache<Long, TodoView> cache;
+
+    public TodoCache(@Value("${todo.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${todo.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                     ObjectProvider<MeterRegistry> meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, NAME));
+    }
+
+    /**
+     * Returns the cached todo or loads it. Concurrent loads of the same id are collapsed
+     * into one, and a missing todo is not cached.
+     */
+    public Optional<TodoView> get(Long id, Function<Long, Optional<TodoView>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    @EventListener
+    public void on(TodoChangedEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> put(event.todo());
+            case DELETED -> cache.invalidate(event.id());
+            case CLEARED -> cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Drops entries another node has changed. An entry already at the notified version or
+     * newer is kept, which also makes this node's own writes, echoed back by the bus, a no-op.
+     */
+    @EventListener
+    public void on(RemoteTodoChange change) {
+        switch (change.type()) {
+            case CREATED, UPDATED -> cache.asMap().computeIfPresent(change.id(), (id, cached) ->
+                    change.version() != null && cached.version() >= change.version() ? cached : null);
+            case DELETED -> cache.invalidate(change.id());
+            case CLEARED -> cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Stores a todo unless a newer version is already cached, so that writes completing
+     * out of order cannot roll an entry back.
+     */
+    private void put(TodoView todo) {
+        cache.asMap().merge(todo.id(), todo, (cached, updated) ->
+                updated.version() >= cached.version() ? updated : cached);
+    }
+}
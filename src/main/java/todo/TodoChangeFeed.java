@@ -0,0 +1,250 @@
+package todo;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans changes out to the Server-Sent Events subscribers of {@code GET /todos/stream}.
+ * The feed follows the invalidation bus, i.e. {@link RemoteTodoChange}s, so subscribers
+ * see the writes of every node, this one's included, each exactly once. Created and
+ * updated todos are read through {@link TodoCache} when they are sent.
+ * <p>
+ * Every change gets the next event id and is kept in a bounded ring buffer, from which
+ * a reconnecting client is replayed everything after its {@code Last-Event-ID}. The
+ * buffer and its ids are per node: ids are {@code <epoch>-<sequence>} with an epoch drawn
+ * at startup, so ids handed out by an earlier run or another node are never mistaken for
+ * this one's. A subscriber that asks for events already overwritten, or from another
+ * epoch, for instance after its reconnect was balanced onto another node, gets a
+ * {@code reset} event instead and should reload the list.
+ * <p>
+ * Idle subscribers hold no thread. When there is something to send, a virtual thread
+ * drains that subscriber's backlog from the ring, so a slow client only delays itself.
+ */
+@Component
+@Profile("!reactive")
+public class TodoChangeFeed implements DisposableBean {
+    static final String RESET = "reset";
+
+    private final String epoch = Long.toUnsignedString(new SecureRandom().nextLong(), 36);
+    private final Event[] ring;
+    private long latestId;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("todo-stream-heartbeat").daemon().factory());
+    private final Duration timeout;
+    private final TodoCache cache;
+    private final TodoRepository repository;
+
+    public TodoChangeFeed(TodoCache cache,
+                          TodoRepository repository,
+                          @Value("${todo.stream.buffer-size:1024}") int bufferSize,
+                          @Value("${todo.stream.timeout:30m}") Duration timeout,
+                          @Value("${todo.stream.heartbeat:15s}") Duration heartbeat) {
+        this.ring = new Event[bufferSize];
+        this.timeout = timeout;
+        this.cache = cache;
+        this.repository = repository;
+        heartbeats.scheduleAtFixedRate(() -> subscribers.forEach(Subscriber::heartbeat),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream for one client. Without a {@code Last-Event-ID} it starts with the
+     * next change; {@code baseUrl} is resolved by the caller since the stream outlives
+     * the request.
+     */
+    public SseEmitter subscribe(String lastEventId, String baseUrl) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, baseUrl, after(lastEventId));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return emitter;
+    }
+
+    @EventListener
+    public void on(RemoteTodoChange change) {
+        synchronized (this) {
+            latestId++;
+            ring[(int) (latestId % ring.length)] = new Event(latestId, change);
+        }
+        subscribers.forEach(Subscriber::schedule);
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * The events after {@code after}, oldest first, or {@code null} if some of them are
+     * no longer buffered.
+     */
+    synchronized List<Event> since(long after) {
+        long oldest = Math.max(1, latestId - ring.length + 1);
+        if (after > latestId || after < oldest - 1) {
+            return null;
+        }
+        List<Event> events = new ArrayList<>((int) (latestId - after));
+        for (long id = after + 1; id <= latestId; id++) {
+            events.add(ring[(int) (id % ring.length)]);
+        }
+        return events;
+    }
+
+    synchronized long latestId() {
+        return latestId;
+    }
+
+    /**
+     * The sequence number a {@code Last-Event-ID} refers to, or {@code -1}, which forces a
+     * reset, when it is not one of this epoch's ids.
+     */
+    private long after(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return latestId();
+        }
+        String id = lastEventId.trim();
+        int dash = id.lastIndexOf('-');
+        if (dash < 0 || !id.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(id.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    /**
+     * The todo as it is now, at least at the notified version, or empty once it is gone;
+     * its deletion is then the next event for it.
+     */
+    private Optional<TodoView> current(RemoteTodoChange change) {
+        Optional<TodoView> todo = cache.get(change.id(), repository::findViewById);
+        if (todo.isPresent() && change.version() != null && todo.get().version() < change.version()) {
+            // Read before the cache dropped the entry it was notified about.
+            return repository.findViewById(change.id());
+        }
+        return todo;
+    }
+
+    record Event(long id, RemoteTodoChange change) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String baseUrl;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private long lastSent;
+
+        Subscriber(SseEmitter emitter, String baseUrl, long lastSent) {
+            this.emitter = emitter;
+            this.baseUrl = baseUrl;
+            this.lastSent = lastSent;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        private void drain() {
+            try {
+                boolean sent = false;
+                List<Event> pending;
+                while (!(pending = pendingEvents()).isEmpty()) {
+                    for (Event event : pending) {
+                        send(event);
+                    }
+                    sent = true;
+                }
+                if (heartbeatDue && !sent) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                heartbeatDue = false;
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // A change published between the last read of the ring and clearing the flag
+            // found this subscriber still scheduled and did not reschedule it.
+            if (lastSent < latestId()) {
+                schedule();
+            }
+        }
+
+        private List<Event> pendingEvents() throws IOException {
+            List<Event> pending = since(lastSent);
+            if (pending == null) {
+                lastSent = latestId();
+                emitter.send(SseEmitter.event().id(eventId(lastSent)).name(RESET).data(""));
+                return List.of();
+            }
+            return pending;
+        }
+
+        private void send(Event event) throws IOException {
+            RemoteTodoChange change = event.change();
+            SseEmitter.SseEventBuilder message = SseEmitter.event()
+                    .id(eventId(event.id()))
+                    .name(change.type().name().toLowerCase());
+            switch (change.type()) {
+                case CREATED, UPDATED -> {
+                    Optional<TodoView> todo = current(change);
+                    if (todo.isEmpty()) {
+                        lastSent = event.id();
+                        return;
+                    }
+                    message.data(TodoResponse.from(todo.get(), baseUrl));
+                }
+                case DELETED -> message.data(Map.of("id", change.id(), "url", baseUrl + "/" + change.id()));
+                case CLEARED -> message.data("");
+            }
+            emitter.send(message);
+            lastSent = event.id();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package todo;
+
+/**
+ * Published by {@link TodoController} and {@link TodoArchiver} after a write has
+ * committed, so that caches and other derived state can follow along.
+ *
+ * @param id   the affected todo, {@code null} for {@link Type#CLEARED}
+ * @param todo the todo after the change, {@code null} for deletions and clears
+ */
+public record TodoChangedEvent(Type type, Long id, TodoView todo) {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Any number of todos may have changed or disappeared, e.g. after a bulk delete.
+         */
+        CLEARED
+    }
+
+    static TodoChangedEvent created(TodoView todo) {
+        return new TodoChangedEvent(Type.CREATED, todo.id(), todo);
+    }
+
+    static TodoChangedEvent updated(TodoView todo) {
+        return new TodoChangedEvent(Type.UPDATED, todo.id(), todo);
+    }
+
+    static TodoChangedEvent deleted(Long id) {
+        return new TodoChangedEvent(Type.DELETED, id, null);
+    }
+
+    static TodoChangedEvent cleared() {
+        return new TodoChangedEvent(Type.CLEARED, null, null);
+    }
+}
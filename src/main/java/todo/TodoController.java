@@ -1,15 +1,48 @@
 package todo;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -19,12 +52,64 @@ import static org.springframework.web.bind.annotation.RequestMethod.PATCH;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 @Controller
+@Profile("!reactive")
 @RequestMapping(value = "/todos")
 public class TodoController {
+    static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * Formats todos and lists of todos are rendered in, in order of preference when the
+     * client accepts several equally.
+     */
+    static final List<MediaType> FORMATS =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
     private final TodoRepository repository;
+    private final TodoExporter exporter;
+    private final TodoImporter importer;
+    private final TodoCache cache;
+    private final TodoChangeFeed feed;
+    private final TodoListSnapshots snapshots;
+    private final Map<MediaType, ObjectMapper> listWriters;
+    private final ApplicationEventPublisher events;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final boolean truncateOnDeleteAll;
+    private final long maxSearchOffset;
+    private final DistributionSummary listRows;
+    private final DistributionSummary searchRows;
 
-    public TodoController(TodoRepository repository) {
+    public TodoController(TodoRepository repository,
+                          TodoExporter exporter,
+                          TodoImporter importer,
+                          TodoCache cache,
+                          TodoChangeFeed feed,
+                          TodoListSnapshots snapshots,
+                          Jackson2ObjectMapperBuilder mapperBuilder,
+                          ApplicationEventPublisher events,
+                          ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${todo.pagination.default-limit:100}") int defaultPageSize,
+                          @Value("${todo.pagination.max-limit:1000}") int maxPageSize,
+                          @Value("${todo.delete-all.truncate:false}") boolean truncateOnDeleteAll,
+                          @Value("${todo.search.max-offset:1000}") long maxSearchOffset) {
         this.repository = repository;
+        this.exporter = exporter;
+        this.importer = importer;
+        this.cache = cache;
+        this.feed = feed;
+        this.snapshots = snapshots;
+        this.listWriters = Map.of(
+                MediaType.APPLICATION_JSON, mapperBuilder.factory(new JsonFactory()).build(),
+                MediaType.APPLICATION_CBOR, mapperBuilder.factory(new CBORFactory()).build(),
+                APPLICATION_SMILE, mapperBuilder.factory(new SmileFactory()).build());
+        this.events = events;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.truncateOnDeleteAll = truncateOnDeleteAll;
+        this.maxSearchOffset = maxSearchOffset;
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.listRows = pageRows(registry, "list");
+        this.searchRows = pageRows(registry, "search");
     }
 
     @RequestMapping("/hello")
@@ -34,45 +119,349 @@ public class TodoController {
     }
 
     @RequestMapping(method = POST)
+    public ResponseEntity<TodoResponse> create(@RequestBody Todo newTodo, HttpServletRequest request) {
+        TodoView todo = TodoView.of(repository.save(newTodo));
+        recordChange(TodoChangedEvent.created(todo));
+        return withETag(todo, request);
+    }
+
+    /**
+     * Creates many todos in one transaction with batched inserts and reports the outcome
+     * of each item in request order. At most {@code todo.pagination.max-limit} todos are
+     * accepted per array; larger imports are sent as NDJSON.
+     */
+    @RequestMapping(value = "/batch", method = POST, consumes = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody
-    TodoResponse create(@RequestBody Todo newTodo) {
-        Todo todo = repository.save(newTodo);
-        return TodoResponse.from(todo);
+    List<TodoBatchResult> createBatch(@RequestBody List<Todo> newTodos) {
+        if (newTodos.size() > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot create more than " + maxPageSize + " todos in one array; send NDJSON instead");
+        }
+        List<TodoBatchResult> results = importer.importAll(newTodos);
+        recordChanges(createdEvents(results));
+        return results;
     }
 
-    @RequestMapping(method = GET)
+    /**
+     * Same as {@link #createBatch(List)} for a newline-delimited JSON body, which is read
+     * as it arrives rather than buffered. Unlike a JSON array it is committed in chunks of
+     * {@code todo.import.chunk-size} todos: a malformed line is reported as rejected and
+     * ends the import, keeping the todos before it.
+     */
+    @RequestMapping(value = "/batch", method = POST, consumes = MediaType.APPLICATION_NDJSON_VALUE)
     public @ResponseBody
-    List<TodoResponse> getAll() {
-        List<Todo> all = repository.findAll();
+    List<TodoBatchResult> createBatchFromNdjson(HttpServletRequest request) throws IOException {
+        return importer.importNdjson(request.getInputStream(), batch -> recordChanges(createdEvents(batch)));
+    }
 
-        return all.stream()
-                .map(TodoResponse::from)
-                .collect(Collectors.toList());
+    /**
+     * Returns one keyset page of todos, optionally filtered by {@code completed} and a
+     * title prefix and sorted by id (default) or {@code order}. The page size is capped
+     * at {@code todo.pagination.max-limit}; when more todos exist a {@code Link} header
+     * with {@code rel="next"} points at the following page.
+     * <p>
+     * The {@code ETag} is the table-level revision, qualified by format and content coding,
+     * read before the page itself, so an unchanged poll is answered with 304 without
+     * touching any todo rows. Otherwise the serialized page is served from
+     * {@link TodoListSnapshots} while the revision stays the same, gzipped in advance for
+     * clients that accept it. The body is JSON, or CBOR or Smile when the {@code Accept}
+     * header prefers one of those.
+     */
+    @RequestMapping(method = GET)
+    public ResponseEntity<byte[]> getAll(@RequestParam(value = "completed", required = false) Boolean completed,
+                                         @RequestParam(value = "titlePrefix", required = false) String titlePrefix,
+                                         @RequestParam(value = "sort", required = false) String sort,
+                                         @RequestParam(value = "after", required = false) String after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                         HttpServletRequest request) {
+        MediaType format = format(accept);
+        int pageSize = pageSize(limit);
+        TodoQuery query = new TodoQuery(completed, titlePrefix, TodoQuery.Sort.parse(sort));
+        TodoQuery.Cursor cursor = TodoQuery.Cursor.parse(after, query.sort());
+        boolean gzip = acceptsGzip(acceptEncoding);
+        long revision = repository.currentRevision();
+        String etag = ETags.of(revision, representation(format, gzip));
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        String baseUrl = TodoResponse.baseUrl();
+        TodoListSnapshots.Snapshot snapshot = snapshots.get(
+                new TodoListSnapshots.Key(revision, baseUrl, request.getQueryString(), query, cursor, pageSize, format),
+                () -> renderPage(query, cursor, pageSize, baseUrl, format));
+        listRows.record(snapshot.rows());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(format)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (snapshot.link() != null) {
+            response.header(HttpHeaders.LINK, snapshot.link());
+        }
+        if (gzip && snapshot.gzipped() != null) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzipped());
+        }
+        return response.body(snapshot.body());
+    }
+
+    /**
+     * Full-text search over titles, best matches first. Ranked results cannot be paged by
+     * key, so pages are by offset, which is capped at {@code todo.search.max-offset}; the
+     * {@code Link} header points at the next page as for {@link #getAll}.
+     */
+    @RequestMapping(value = "/search", method = GET)
+    public ResponseEntity<List<TodoResponse>> search(@RequestParam("q") String text,
+                                                     @RequestParam(value = "limit", required = false) Integer limit,
+                                                     @RequestParam(value = "offset", defaultValue = "0") long offset,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (text.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be blank");
+        }
+        if (offset < 0 || offset > maxSearchOffset) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "offset must be between 0 and " + maxSearchOffset);
+        }
+        int pageSize = pageSize(limit);
+        String etag = ETags.of(repository.currentRevision());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        List<TodoView> page = repository.search(text, pageSize + 1, offset);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            if (offset + pageSize <= maxSearchOffset) {
+                String href = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("offset", offset + pageSize)
+                        .replaceQueryParam("limit", pageSize)
+                        .toUriString();
+                response.header(HttpHeaders.LINK, Link.of(href, IanaLinkRelations.NEXT).toString());
+            }
+        }
+        searchRows.record(page.size());
+
+        String baseUrl = TodoResponse.baseUrl();
+        return response.body(page.stream()
+                .map(todo -> TodoResponse.from(todo, baseUrl))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Pages through archived todos in id order, with a {@code Link} header to the next page
+     * as for {@link #getAll}. Archived todos are read only here; every other endpoint sees
+     * the live table alone.
+     */
+    @RequestMapping(value = "/archive", method = GET)
+    public ResponseEntity<List<TodoResponse>> getArchived(@RequestParam(value = "after", required = false) Long after,
+                                                          @RequestParam(value = "limit", required = false) Integer limit) {
+        int pageSize = pageSize(limit);
+        List<TodoView> page = repository.findArchivedPage(after, pageSize + 1);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            response.header(HttpHeaders.LINK, nextLink(page.get(pageSize - 1).id().toString(), pageSize).toString());
+        }
+
+        String baseUrl = TodoResponse.baseUrl();
+        return response.body(page.stream()
+                .map(todo -> TodoResponse.from(todo, baseUrl))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Streams the whole table as newline-delimited JSON, selected with
+     * {@code Accept: application/x-ndjson} on {@code /todos} or {@code /todos/export}.
+     */
+    @RequestMapping(value = {"", "/export"}, method = GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportNdjson(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        exporter.exportNdjson(response.getOutputStream());
+    }
+
+    /**
+     * Streams the whole table as a single JSON array.
+     */
+    @RequestMapping(value = "/export", method = GET)
+    public void exportJsonArray(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        exporter.exportJsonArray(response.getOutputStream());
     }
 
+    /**
+     * Pushes every change as a Server-Sent Event: {@code created} and {@code updated}
+     * carry the todo, {@code deleted} its id and url, {@code cleared} nothing, for writes
+     * made on any node. Event ids increase monotonically per node, and a reconnect to the
+     * same node with {@code Last-Event-ID} replays what was missed while it is still
+     * buffered; elsewhere it gets a {@code reset}.
+     */
+    @RequestMapping(value = "/stream", method = GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return feed.subscribe(lastEventId, TodoResponse.baseUrl());
+    }
+
+    /**
+     * Deletes all todos, or only those matching {@code ?completed=}, with a single
+     * set-based statement instead of loading and removing every entity.
+     */
     @RequestMapping(method = DELETE)
     @ResponseStatus(value = HttpStatus.OK)
-    public void delete() {
-        repository.deleteAll();
+    public void delete(@RequestParam(value = "completed", required = false) Boolean completed) {
+        if (completed != null) {
+            repository.deleteAllByCompleted(completed);
+        } else if (truncateOnDeleteAll) {
+            repository.truncate();
+        } else {
+            repository.deleteAllInBatch();
+        }
+        recordChange(TodoChangedEvent.cleared());
     }
 
-    @RequestMapping(value = "/{id}", method = GET)
+    /**
+     * Applies partial updates to many todos, given as a JSON object from id to patch, in
+     * one transaction with batched updates. Reports the outcome of each entry in request
+     * order: 200 with the todo, 400 for an invalid patch, or 404 for an unknown id.
+     */
+    @RequestMapping(method = PATCH)
     public @ResponseBody
-    TodoResponse getOne(@PathVariable("id") Long id) {
-        Todo todo = repository.findById(id)
+    List<TodoBatchResult> editAll(@RequestBody Map<Long, TodoPatchRequest> updates) {
+        if (updates.size() > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot patch more than " + maxPageSize + " todos");
+        }
+
+        Map<Long, String> problems = new HashMap<>();
+        Map<Long, TodoPatchRequest> valid = new LinkedHashMap<>();
+        updates.forEach((id, patch) -> {
+            String problem = validate(patch);
+            if (problem == null) {
+                valid.put(id, patch);
+            } else {
+                problems.put(id, problem);
+            }
+        });
+        Map<Long, TodoView> updated = valid.isEmpty() ? Map.of() : repository.patchAll(valid);
+
+        String baseUrl = TodoResponse.baseUrl();
+        List<TodoBatchResult> results = new ArrayList<>(updates.size());
+        int index = 0;
+        for (Long id : updates.keySet()) {
+            if (problems.containsKey(id)) {
+                results.add(TodoBatchResult.rejected(index, problems.get(id)));
+            } else if (updated.containsKey(id)) {
+                results.add(TodoBatchResult.updated(index, updated.get(id), baseUrl));
+            } else {
+                results.add(TodoBatchResult.notFound(index, "Todo " + id + " not found"));
+            }
+            index++;
+        }
+        if (!updated.isEmpty()) {
+            recordChanges(updated.values().stream().map(TodoChangedEvent::updated).toList());
+        }
+        return results;
+    }
+
+    /**
+     * Puts the given todos in the order of the list in one transaction and returns them
+     * in that order. The order numbers are spaced apart so that later single moves can
+     * use {@link #move}.
+     */
+    @RequestMapping(value = "/reorder", method = POST)
+    public @ResponseBody
+    List<TodoResponse> reorder(@RequestBody List<Long> ids) {
+        if (ids.size() > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot reorder more than " + maxPageSize + " todos");
+        }
+        if (ids.contains(null) || new HashSet<>(ids).size() != ids.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must be distinct");
+        }
+
+        List<TodoView> reordered;
+        try {
+            reordered = repository.reorder(ids);
+        } catch (JdbcUpdateAffectedIncorrectNumberOfRowsException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found", e);
+        }
+        recordChanges(reordered.stream().map(TodoChangedEvent::updated).toList());
+
+        String baseUrl = TodoResponse.baseUrl();
+        return reordered.stream()
+                .map(todo -> TodoResponse.from(todo, baseUrl))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Moves a todo directly behind {@code ?after=}, or to the front without it. Normally
+     * only this todo's order number changes.
+     */
+    @RequestMapping(value = "/{id}/move", method = POST)
+    public ResponseEntity<TodoResponse> move(@PathVariable("id") Long id,
+                                             @RequestParam(value = "after", required = false) Long after,
+                                             HttpServletRequest request) {
+        if (id.equals(after)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot move a todo behind itself");
+        }
+
+        TodoRepositoryCustom.Move move;
+        try {
+            move = repository.move(id, after)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        recordChange(move.renumbered()
+                ? TodoChangedEvent.cleared()
+                : TodoChangedEvent.updated(move.todo()));
+        return withETag(move.todo(), request);
+    }
+
+    /**
+     * Returns a single todo through the read-through cache. A conditional request that
+     * still matches the cached version in the same representation is answered with 304.
+     */
+    @RequestMapping(value = "/{id}", method = GET)
+    public ResponseEntity<TodoResponse> getOne(@PathVariable("id") Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               HttpServletRequest request) {
+        TodoView todo = cache.get(id, repository::findViewById)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo does not exist!"));
-        return TodoResponse.from(todo);
+
+        MediaType format = format(request.getHeader(HttpHeaders.ACCEPT));
+        String etag = ETags.of(todo.version(),
+                representation(format, acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))));
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        return withETag(todo, request);
     }
 
+    /**
+     * Applies a partial update. With an {@code If-Match} header the update only succeeds
+     * if the todo is still at that version, otherwise the response is 412.
+     */
     @RequestMapping(value = "/{id}", method = PATCH)
-    public @ResponseBody
-    TodoResponse edit(@RequestBody TodoPatchRequest updates, @PathVariable("id") Long id) {
-        Optional<Todo> byId = repository.findById(id);
+    public ResponseEntity<TodoResponse> edit(@RequestBody TodoPatchRequest updates,
+                                             @PathVariable("id") Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             HttpServletRequest request) {
+        Long expectedVersion = ETags.expectedVersion(ifMatch);
+        Optional<Todo> updated = repository.patch(id, updates, expectedVersion);
 
-        if (byId.isPresent()) {
-            Todo existing = byId.get();
-            Todo updatedTodo = Todo.from(updates, existing);
-            return TodoResponse.from(repository.save(updatedTodo));
+        if (updated.isPresent()) {
+            TodoView todo = TodoView.of(updated.get());
+            recordChange(TodoChangedEvent.updated(todo));
+            return withETag(todo, request);
+        } else if (expectedVersion != null && repository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Todo has been modified");
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found");
         }
@@ -81,6 +470,151 @@ public class TodoController {
     @RequestMapping(value = "/{id}", method = DELETE)
     @ResponseStatus(value = HttpStatus.OK)
     public void deleteById(@PathVariable("id") Long id) {
-        repository.deleteById(id);
+        if (repository.removeById(id) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found");
+        }
+        recordChange(TodoChangedEvent.deleted(id));
+    }
+
+    private void recordChange(TodoChangedEvent event) {
+        recordChanges(List.of(event));
+    }
+
+    /**
+     * Must run after the write has committed: readers take the revision before the data,
+     * so a tag is never paired with data older than it. Listeners such as {@link TodoCache}
+     * run synchronously before the response is sent.
+     */
+    private void recordChanges(Collection<TodoChangedEvent> changes) {
+        repository.incrementRevision();
+        changes.forEach(events::publishEvent);
+    }
+
+    private static List<TodoChangedEvent> createdEvents(List<TodoBatchResult> results) {
+        return results.stream()
+                .filter(result -> result.view() != null)
+                .map(result -> TodoChangedEvent.created(result.view()))
+                .toList();
+    }
+
+    private static String validate(TodoPatchRequest patch) {
+        if (patch == null) {
+            return "patch is required";
+        }
+        if (patch.getTitle() != null && patch.getTitle().length() > TodoImporter.MAX_TITLE_LENGTH) {
+            return "title is longer than " + TodoImporter.MAX_TITLE_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    /**
+     * A single todo in the format the {@code Accept} header selects, tagged with its version
+     * qualified by that representation, as for {@link #getAll}. The content type is pinned
+     * so that the body is always written in the format the tag names.
+     */
+    private static ResponseEntity<TodoResponse> withETag(TodoView todo, HttpServletRequest request) {
+        MediaType format = format(request.getHeader(HttpHeaders.ACCEPT));
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        return ResponseEntity.ok()
+                .eTag(ETags.of(todo.version(), representation(format, gzip)))
+                .contentType(format)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .body(TodoResponse.from(todo, TodoResponse.baseUrl()));
+    }
+
+    private TodoListSnapshots.Snapshot renderPage(TodoQuery query, TodoQuery.Cursor cursor, int pageSize,
+                                                  String baseUrl, MediaType format) {
+        List<TodoView> page = repository.findPage(query, cursor, pageSize + 1);
+        String link = null;
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            TodoQuery.Cursor next = TodoQuery.Cursor.after(page.get(pageSize - 1));
+            link = nextLink(next.format(query.sort()), pageSize).toString();
+        }
+        List<TodoResponse> body = page.stream()
+                .map(todo -> TodoResponse.from(todo, baseUrl))
+                .collect(Collectors.toList());
+        try {
+            return new TodoListSnapshots.Snapshot(listWriters.get(format).writeValueAsBytes(body), link, body.size());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize todos", e);
+        }
+    }
+
+    /**
+     * The most preferred of {@link #FORMATS} the {@code Accept} header allows; JSON
+     * when there is no header.
+     */
+    private static MediaType format(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType format : FORMATS) {
+                if (type.includes(format)) {
+                    return format;
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Supported formats are " + FORMATS);
+    }
+
+    /**
+     * Distinguishes entity tags by format and content coding, so that every representation
+     * of a todo or a list has its own strong tag. Clients accepting gzip get the gzip tag even
+     * for bodies too small to be compressed; an identical body under two tags is allowed.
+     */
+    private static String representation(MediaType format, boolean gzip) {
+        String variant = MediaType.APPLICATION_JSON.equals(format) ? null : format.getSubtype();
+        if (!gzip) {
+            return variant;
+        }
+        return variant == null ? "gzip" : variant + "+gzip";
+    }
+
+    /**
+     * Whether {@code gzip} is an acceptable content coding, i.e. listed without {@code q=0}.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static DistributionSummary pageRows(MeterRegistry registry, String endpoint) {
+        return DistributionSummary.builder("todo.page.rows")
+                .description("Todos returned per page")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private static Link nextLink(String after, int pageSize) {
+        String href = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", after)
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+        return Link.of(href, IanaLinkRelations.NEXT);
     }
 }
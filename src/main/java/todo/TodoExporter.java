@@ -0,0 +1,63 @@
+package todo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams every todo to an output stream without materialising the table in memory.
+ * Rows are read through a forward-only cursor as {@link TodoView} projections, so
+ * Hibernate holds on to nothing it has already written.
+ */
+@Component
+@Profile("!reactive")
+public class TodoExporter {
+    private final TodoRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public TodoExporter(TodoRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes all todos as newline-delimited JSON, one {@link TodoResponse} per line.
+     */
+    @Transactional(readOnly = true)
+    public void exportNdjson(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out);
+             Stream<TodoView> todos = repository.streamAll()) {
+            generator.setRootValueSeparator(null);
+            String baseUrl = TodoResponse.baseUrl();
+            Iterator<TodoView> iterator = todos.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(TodoResponse.from(iterator.next(), baseUrl));
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes all todos as a single JSON array of {@link TodoResponse}.
+     */
+    @Transactional(readOnly = true)
+    public void exportJsonArray(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out);
+             Stream<TodoView> todos = repository.streamAll()) {
+            generator.writeStartArray();
+            String baseUrl = TodoResponse.baseUrl();
+            Iterator<TodoView> iterator = todos.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(TodoResponse.from(iterator.next(), baseUrl));
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package todo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Inserts many todos: a JSON array in one transaction, NDJSON in one transaction per chunk
+ * of {@code todo.import.chunk-size} todos.
+ * Ids come from the pooled sequence, so Hibernate can send the inserts in JDBC batches; the
+ * persistence context is flushed and cleared every batch so large imports do not
+ * accumulate entities.
+ */
+@Component
+@Profile("!reactive")
+public class TodoImporter {
+    static final int MAX_TITLE_LENGTH = 100;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactions;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int chunkSize;
+
+    public TodoImporter(EntityManager entityManager,
+                        PlatformTransactionManager transactionManager,
+                        ObjectMapper objectMapper,
+                        @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize,
+                        @Value("${todo.import.chunk-size:100}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("todo.import.chunk-size must be positive");
+        }
+        this.entityManager = entityManager;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    @Transactional
+    public List<TodoBatchResult> importAll(Iterable<Todo> todos) {
+        Import batch = new Import();
+        for (Todo todo : todos) {
+            batch.add(todo);
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Imports newline-delimited JSON, one todo per line, without reading the whole body first.
+     * Lines are read and validated outside any transaction; each chunk of at most
+     * {@code chunkSize} valid todos is then inserted in its own short transaction, so a slow
+     * upload never holds a pooled connection while waiting for the client, and no
+     * transaction grows with the upload. Chunks are committed one by one and handed to
+     * {@code committed} as they are. A malformed line is reported as rejected
+     * and ends the import; the todos before it are kept.
+     */
+    public List<TodoBatchResult> importNdjson(InputStream in, Consumer<List<TodoBatchResult>> committed)
+            throws IOException {
+        List<TodoBatchResult> results = new ArrayList<>();
+        List<Pending> pending = new ArrayList<>(chunkSize);
+        String baseUrl = TodoResponse.baseUrl();
+        try (MappingIterator<Todo> todos = objectMapper.readerFor(Todo.class).readValues(in)) {
+            while (true) {
+                Todo candidate;
+                try {
+                    if (!todos.hasNextValue()) {
+                        break;
+                    }
+                    candidate = todos.nextValue();
+                } catch (JsonProcessingException e) {
+                    results.add(TodoBatchResult.rejected(results.size(), "malformed JSON: " + e.getOriginalMessage()));
+                    break;
+                }
+                String problem = validate(candidate);
+                if (problem != null) {
+                    results.add(TodoBatchResult.rejected(results.size(), problem));
+                    continue;
+                }
+                pending.add(new Pending(results.size(), candidate));
+                results.add(null);
+                if (pending.size() == chunkSize) {
+                    persist(pending, results, baseUrl, committed);
+                }
+            }
+        }
+        persist(pending, results, baseUrl, committed);
+        return results;
+    }
+
+    private void persist(List<Pending> pending, List<TodoBatchResult> results, String baseUrl,
+                         Consumer<List<TodoBatchResult>> committed) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<TodoBatchResult> created = transactions.execute(status -> {
+            List<TodoBatchResult> batch = new ArrayList<>(pending.size());
+            for (Pending item : pending) {
+                Todo todo = new Todo(null, item.todo().getTitle(), item.todo().isCompleted(), item.todo().getOrderNumber());
+                entityManager.persist(todo);
+                batch.add(TodoBatchResult.created(item.index(), TodoView.of(todo), baseUrl));
+                if (batch.size() % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return batch;
+        });
+        created.forEach(result -> results.set(result.getIndex(), result));
+        pending.clear();
+        committed.accept(created);
+    }
+
+    private record Pending(int index, Todo todo) {
+    }
+
+    private static String validate(Todo todo) {
+        if (todo == null || todo.getTitle() == null || todo.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (todo.getTitle().length() > MAX_TITLE_LENGTH) {
+            return "title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private final class Import {
+        private final List<TodoBatchResult> results = new ArrayList<>();
+        private final String baseUrl = TodoResponse.baseUrl();
+        private int pending;
+
+        void add(Todo candidate) {
+            int index = results.size();
+            String problem = validate(candidate);
+            if (problem != null) {
+                results.add(TodoBatchResult.rejected(index, problem));
+                return;
+            }
+
+            // Ids are always server-assigned, whatever the client sent.
+            Todo todo = new Todo(null, candidate.getTitle(), candidate.isCompleted(), candidate.getOrderNumber());
+            entityManager.persist(todo);
+            results.add(TodoBatchResult.created(index, TodoView.of(todo), baseUrl));
+
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+
+        List<TodoBatchResult> finish() {
+            entityManager.flush();
+            entityManager.clear();
+            return results;
+        }
+    }
+}
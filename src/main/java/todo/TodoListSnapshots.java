@@ -0,0 +1,127 @@
+package todo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized {@code GET /todos} pages, keyed by the table revision they were read at.
+ * A write advances the revision, so later requests miss and render a fresh snapshot
+ * while the old ones age out; no explicit invalidation is needed, and writes made by
+ * other nodes are covered as well. Bounded by the total size of the cached bodies,
+ * gzipped copies included.
+ */
+@Component
+@Profile("!reactive")
+public class TodoListSnapshots {
+    static final String NAME = "todo-lists";
+
+    /**
+     * Smaller bodies are not worth compressing; matches Tomcat's default.
+     */
+    static final int GZIP_MIN_SIZE = 2048;
+
+    private final Cache<Key, Snapshot> cache;
+    private final boolean enabled;
+
+    public TodoListSnapshots(@Value("${todo.list-cache.enabled:true}") boolean enabled,
+                             @Value("${todo.list-cache.maximum-size:64MB}") DataSize maximumSize,
+                             @Value("${todo.list-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .<Key, Snapshot>weigher((key, snapshot) -> snapshot.size())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, NAME));
+    }
+
+    /**
+     * Returns the snapshot for the key, rendering it once when missing. Concurrent
+     * requests for the same page wait for a single render.
+     */
+    public Snapshot get(Key key, Supplier<Snapshot> render) {
+        return enabled ? cache.get(key, ignored -> render.get()) : render.get();
+    }
+
+    /**
+     * @param revision    the table revision read before the page
+     * @param baseUrl     the collection URL the self links were built from
+     * @param queryString the raw query string the {@code next} link carries over
+     * @param query       the parsed filter and sort
+     * @param after       the parsed cursor, {@code null} for the first page
+     * @param limit       the effective page size
+     * @param format      the negotiated body format
+     */
+    public record Key(long revision, String baseUrl, String queryString,
+                      TodoQuery query, TodoQuery.Cursor after, int limit, MediaType format) {
+    }
+
+    /**
+     * A rendered page: the serialized body, the {@code Link} header if there is a next
+     * page, and for bodies of at least {@link #GZIP_MIN_SIZE} bytes the gzipped body. Both
+     * are built before the snapshot is cached so that its weight covers them.
+     */
+    public static final class Snapshot {
+        private final byte[] body;
+        private final byte[] gzipped;
+        private final String link;
+        private final int rows;
+
+        public Snapshot(byte[] body, String link, int rows) {
+            this.body = body;
+            this.gzipped = body.length >= GZIP_MIN_SIZE ? gzip(body) : null;
+            this.link = link;
+            this.rows = rows;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+
+        /**
+         * The gzipped body, {@code null} when the body is too small to be worth it.
+         */
+        public byte[] gzipped() {
+            return gzipped;
+        }
+
+        public String link() {
+            return link;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        int size() {
+            return body.length + (gzipped == null ? 0 : gzipped.length);
+        }
+
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
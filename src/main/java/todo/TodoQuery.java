@@ -0,0 +1,64 @@
+package todo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Filters and sort order for a page of {@code GET /todos}. {@code null} filters match
+ * every todo.
+ */
+public record TodoQuery(Boolean completed, String titlePrefix, Sort sort) {
+    public enum Sort {
+        /**
+         * By id, i.e. creation order.
+         */
+        ID,
+        /**
+         * By the client-assigned {@code order}, todos without one last, ties by id.
+         */
+        ORDER;
+
+        static Sort parse(String sort) {
+            if (sort == null || sort.isBlank()) {
+                return ID;
+            }
+            return switch (sort.trim().toLowerCase()) {
+                case "id" -> ID;
+                case "order" -> ORDER;
+                default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be 'id' or 'order'");
+            };
+        }
+    }
+
+    /**
+     * Keyset position after the last todo of the previous page. For {@link Sort#ORDER}
+     * it carries the order number too, written {@code <order>,<id>} with {@code null}
+     * for todos without one; for {@link Sort#ID} it is just the id.
+     */
+    public record Cursor(Integer order, long id) {
+        static Cursor after(TodoView todo) {
+            return new Cursor(todo.order(), todo.id());
+        }
+
+        static Cursor parse(String after, Sort sort) {
+            if (after == null || after.isBlank()) {
+                return null;
+            }
+            try {
+                if (sort == Sort.ID) {
+                    return new Cursor(null, Long.parseLong(after.trim()));
+                }
+                int comma = after.indexOf(',');
+                String order = after.substring(0, comma).trim();
+                return new Cursor(order.equals("null") ? null : Integer.valueOf(order),
+                        Long.parseLong(after.substring(comma + 1).trim()));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed 'after' cursor", e);
+            }
+        }
+
+        String format(Sort sort) {
+            return sort == Sort.ID ? Long.toString(id) : order + "," + id;
+        }
+    }
+}
@@ -1,9 +1,66 @@
 package todo;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TodoRepository extends JpaRepository<Todo, Long> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, TodoRepositoryCustom {
     Todo findByTitle(String title);
+
+    /**
+     * Reads a todo straight into its {@link TodoView}, without creating a managed entity.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new todo.TodoView(t.id, t.title, t.completed, t.orderNumber, t.version) from Todo t where t.id = :id")
+    Optional<TodoView> findViewById(@Param("id") Long id);
+
+    /**
+     * Forward-only cursor over every todo ordered by id, projected to {@link TodoView}s so
+     * the persistence context stays empty however many rows are read. Must be consumed
+     * inside a transaction and closed by the caller.
+     */
+    @Query("select new todo.TodoView(t.id, t.title, t.completed, t.orderNumber, t.version) from Todo t order by t.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<TodoView> streamAll();
+
+    /**
+     * Set-based delete of every todo with the given completed flag, in a single statement.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Todo t where t.completed = :completed")
+    int deleteAllByCompleted(@Param("completed") boolean completed);
+
+    /**
+     * Empties the table with {@code TRUNCATE}, which skips per-row work entirely but takes
+     * an exclusive lock on the table for the duration of the statement.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "TRUNCATE TABLE todo", nativeQuery = true)
+    void truncate();
+
+    /**
+     * Deletes a single todo without loading it first.
+     *
+     * @return the number of rows deleted, zero when the todo did not exist
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Todo t where t.id = :id")
+    int removeById(@Param("id") Long id);
 }
@@ -0,0 +1,113 @@
+package todo;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Hand-written {@link TodoRepository} operations that Spring Data cannot derive. Reads
+ * map rows straight to {@link TodoView}s over plain JDBC, bypassing the persistence
+ * context.
+ */
+public interface TodoRepositoryCustom {
+    /**
+     * Applies a partial update in a single statement and returns the updated row, or an
+     * empty optional when no todo has the given id. Fields left {@code null} in the
+     * request keep their current value, and the version is incremented.
+     *
+     * @param expectedVersion when not {@code null}, the update only applies if the todo is
+     *                        still at this version; otherwise the result is empty
+     */
+    Optional<Todo> patch(Long id, TodoPatchRequest updates, Long expectedVersion);
+
+    /**
+     * Applies many partial updates as one JDBC batch in a single transaction, with the
+     * same semantics as {@link #patch} without a version check.
+     *
+     * @return the updated todos by id; ids that do not exist are absent
+     */
+    Map<Long, TodoView> patchAll(Map<Long, TodoPatchRequest> updates);
+
+    /**
+     * Spacing between the order numbers that {@link #reorder} and {@link #move} assign,
+     * leaving room to move todos between neighbours without renumbering.
+     */
+    int ORDER_GAP = 1024;
+
+    /**
+     * Gives the todos the order of the list, {@link #ORDER_GAP} apart, in one batched
+     * update. If any id does not exist nothing changes and a
+     * {@link org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException}
+     * is thrown.
+     *
+     * @return the reordered todos in their new order
+     */
+    List<TodoView> reorder(List<Long> ids);
+
+    /**
+     * Moves a todo directly behind another one, or to the front when {@code after} is
+     * {@code null}, by giving it an order number between its new neighbours. Only the moved
+     * row changes unless the neighbours have no gap left, in which case every ordered todo
+     * is renumbered first. Returns an empty optional, changing nothing, when the todo does
+     * not exist.
+     *
+     * @throws IllegalArgumentException if {@code after} does not exist or has no order
+     * @throws IllegalStateException    if renumbering is needed but there are too many
+     *                                  ordered todos to do it in one transaction
+     */
+    Optional<Move> move(Long id, Long after);
+
+    /**
+     * @param renumbered whether every ordered todo got a new order number, not just this one
+     */
+    record Move(TodoView todo, boolean renumbered) {
+    }
+
+    /**
+     * Returns up to {@code limit} todos matching the query in its sort order, starting
+     * after the cursor, or from the beginning when it is {@code null}.
+     */
+    List<TodoView> findPage(TodoQuery query, TodoQuery.Cursor after, int limit);
+
+    /**
+     * Full-text search over titles, best matches first.
+     */
+    List<TodoView> search(String text, int limit, long offset);
+
+    /**
+     * Makes sure the archive can take rows archived at the given time. On PostgreSQL that
+     * creates the archive partition for its month if it does not exist yet.
+     */
+    void prepareArchive(Instant archivedAt);
+
+    /**
+     * Moves up to {@code limit} todos with ids above {@code after} that were completed
+     * before {@code cutoff}, or before completion times were recorded, into the archive,
+     * in one short transaction. The rows are locked in id order while they are copied and
+     * deleted, so a concurrent edit either happens first or waits for the batch.
+     *
+     * @return the ids moved, in ascending order
+     */
+    List<Long> archiveCompleted(Instant cutoff, Instant archivedAt, long after, int limit);
+
+    /**
+     * Returns up to {@code limit} archived todos in id order, starting after the given id,
+     * or from the beginning when it is {@code null}.
+     */
+    List<TodoView> findArchivedPage(Long after, int limit);
+
+    /**
+     * Current value of the table-level change counter.
+     */
+    long currentRevision();
+
+    /**
+     * Advances the table-level change counter. Called once after every write so that
+     * cached collection representations can be validated without reading todo rows. With
+     * the PostgreSQL invalidation bus, {@link PostgresTodoChangeListener} also advances it
+     * for every notification it receives, which covers writes that do not go through the
+     * application.
+     */
+    void incrementRevision();
+}
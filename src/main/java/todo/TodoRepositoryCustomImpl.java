@@ -0,0 +1,418 @@
+package todo;
+
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class TodoRepositoryCustomImpl implements TodoRepositoryCustom {
+    static final String COLUMNS = "id, title, completed, order_number, version";
+
+    static final String UPDATE = "UPDATE todo SET"
+            + " title = COALESCE(:title, title),"
+            + " completed = COALESCE(:completed, completed),"
+            + " completed_at = CASE WHEN COALESCE(:completed, completed) THEN COALESCE(completed_at, CURRENT_TIMESTAMP) END,"
+            + " order_number = COALESCE(:order, order_number),"
+            + " version = version + 1"
+            + " WHERE id = :id";
+
+    private static final String POSTGRESQL_SEARCH = "SELECT " + COLUMNS
+            + " FROM todo, websearch_to_tsquery('english', :text) query"
+            + " WHERE title_search @@ query"
+            + " ORDER BY ts_rank(title_search, query) DESC, id"
+            + " LIMIT :limit OFFSET :offset";
+
+    /**
+     * H2 has no text search types; its fallback requires every word of the query, up to
+     * this many, to occur somewhere in the title.
+     */
+    private static final int MAX_SEARCH_TERMS = 10;
+
+    private static final String SET_ORDER = "UPDATE todo SET order_number = ?, version = version + 1 WHERE id = ?";
+
+    /**
+     * Most ordered todos {@link #move} renumbers in its single transaction; well below the
+     * {@code Integer.MAX_VALUE / ORDER_GAP} that would fit at all.
+     */
+    static final int MAX_RENUMBERED = 50_000;
+
+    private static final String ORDERED_IDS = "SELECT id FROM todo WHERE order_number IS NOT NULL ORDER BY order_number, id";
+
+    private static final String ARCHIVABLE_IDS = "SELECT id FROM todo"
+            + " WHERE completed AND (completed_at IS NULL OR completed_at < :cutoff) AND id > :after"
+            + " ORDER BY id LIMIT :limit FOR UPDATE";
+
+    private static final String COPY_TO_ARCHIVE = "INSERT INTO todo_archive (" + COLUMNS + ", completed_at, archived_at)"
+            + " SELECT " + COLUMNS + ", completed_at, :archivedAt FROM todo WHERE id IN (:ids)";
+
+    private static final DateTimeFormatter PARTITION_MONTH =
+            DateTimeFormatter.ofPattern("'todo_archive_y'yyyy'm'MM").withZone(ZoneOffset.UTC);
+
+    private static final String CURRENT_REVISION = "SELECT revision FROM todo_revision WHERE id = 1";
+
+    private static final String INCREMENT_REVISION = "UPDATE todo_revision SET revision = revision + 1 WHERE id = 1";
+
+    private static final RowMapper<Todo> TODO_ROW_MAPPER = (rs, rowNum) -> new Todo(
+            rs.getLong("id"),
+            rs.getString("title"),
+            rs.getBoolean("completed"),
+            rs.getObject("order_number", Integer.class),
+            rs.getLong("version"));
+
+    private static final RowMapper<TodoView> VIEW_ROW_MAPPER = (rs, rowNum) -> new TodoView(
+            rs.getLong("id"),
+            rs.getString("title"),
+            rs.getBoolean("completed"),
+            rs.getObject("order_number", Integer.class),
+            rs.getLong("version"));
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private volatile DatabaseVendor vendor;
+
+    TodoRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Todo> patch(Long id, TodoPatchRequest updates, Long expectedVersion) {
+        MapSqlParameterSource params = patchParameters(id, updates);
+
+        String update = UPDATE;
+        if (expectedVersion != null) {
+            update += " AND version = :version";
+            params.addValue("version", expectedVersion, Types.BIGINT);
+        }
+
+        return jdbc.query(returning(update), params, TODO_ROW_MAPPER).stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, TodoView> patchAll(Map<Long, TodoPatchRequest> updates) {
+        List<Long> ids = new ArrayList<>(updates.keySet());
+        SqlParameterSource[] batch = ids.stream()
+                .map(id -> patchParameters(id, updates.get(id)))
+                .toArray(SqlParameterSource[]::new);
+
+        int[] counts = jdbc.batchUpdate(UPDATE, batch);
+        List<Long> updated = new ArrayList<>(ids.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                updated.add(ids.get(i));
+            }
+        }
+        if (updated.isEmpty()) {
+            return Map.of();
+        }
+        return jdbc.query("SELECT " + COLUMNS + " FROM todo WHERE id IN (:ids)",
+                        new MapSqlParameterSource("ids", updated), VIEW_ROW_MAPPER).stream()
+                .collect(Collectors.toMap(TodoView::id, Function.identity()));
+    }
+
+    private static MapSqlParameterSource patchParameters(Long id, TodoPatchRequest updates) {
+        return new MapSqlParameterSource()
+                .addValue("id", id, Types.BIGINT)
+                .addValue("title", updates.getTitle(), Types.VARCHAR)
+                .addValue("completed", updates.getCompleted(), Types.BOOLEAN)
+                .addValue("order", updates.getOrder(), Types.INTEGER);
+    }
+
+    @Override
+    @Transactional
+    public List<TodoView> reorder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        int[] counts = setOrder(ids);
+        int updated = 0;
+        for (int count : counts) {
+            updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        if (updated != ids.size()) {
+            throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(SET_ORDER, ids.size(), updated);
+        }
+        return jdbc.query("SELECT " + COLUMNS + " FROM todo WHERE id IN (:ids) ORDER BY order_number, id",
+                new MapSqlParameterSource("ids", ids), VIEW_ROW_MAPPER);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Move> move(Long id, Long after) {
+        // Lock the moved row first: a missing todo must not renumber the others.
+        List<Long> existing = jdbc.queryForList("SELECT id FROM todo WHERE id = :id FOR UPDATE",
+                new MapSqlParameterSource("id", id), Long.class);
+        if (existing.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Integer order = freeOrderBehind(id, after);
+        boolean renumbered = order == null;
+        if (renumbered) {
+            Integer ordered = jdbc.getJdbcTemplate().queryForObject(
+                    "SELECT COUNT(*) FROM todo WHERE order_number IS NOT NULL", Integer.class);
+            if (ordered > MAX_RENUMBERED) {
+                throw new IllegalStateException("No gap left and too many ordered todos (" + ordered
+                        + ") to renumber in one transaction; reorder them first");
+            }
+            setOrder(jdbc.getJdbcTemplate().queryForList(ORDERED_IDS, Long.class));
+            order = freeOrderBehind(id, after);
+            if (order == null) {
+                throw new IllegalStateException("Too many ordered todos to space them " + ORDER_GAP + " apart");
+            }
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id, Types.BIGINT)
+                .addValue("order", order, Types.INTEGER);
+        String update = "UPDATE todo SET order_number = :order, version = version + 1 WHERE id = :id";
+        return jdbc.query(returning(update), params, VIEW_ROW_MAPPER).stream()
+                .findFirst()
+                .map(todo -> new Move(todo, renumbered));
+    }
+
+    /**
+     * An unused order number directly behind {@code after}, or in front of every other todo,
+     * or {@code null} when the neighbours there leave no gap.
+     */
+    private Integer freeOrderBehind(Long id, Long after) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id, Types.BIGINT)
+                .addValue("after", after, Types.BIGINT);
+
+        Integer previous = null;
+        if (after != null) {
+            previous = jdbc.query("SELECT order_number FROM todo WHERE id = :after", params,
+                            (rs, rowNum) -> rs.getObject("order_number", Integer.class))
+                    .stream().filter(Objects::nonNull).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Todo " + after + " does not exist or has no order"));
+            params.addValue("previous", previous, Types.INTEGER);
+            // Another todo sharing the order number sorts between after and its successor.
+            Integer ties = jdbc.queryForObject("SELECT COUNT(*) FROM todo"
+                    + " WHERE order_number = :previous AND id > :after AND id <> :id", params, Integer.class);
+            if (ties > 0) {
+                return null;
+            }
+        }
+        Integer next = jdbc.queryForObject(previous == null
+                ? "SELECT MIN(order_number) FROM todo WHERE id <> :id"
+                : "SELECT MIN(order_number) FROM todo WHERE order_number > :previous AND id <> :id", params, Integer.class);
+
+        long order;
+        if (previous == null) {
+            order = next == null ? ORDER_GAP : (long) next - ORDER_GAP;
+        } else if (next == null) {
+            order = (long) previous + ORDER_GAP;
+        } else if ((long) next - previous >= 2) {
+            order = previous + ((long) next - previous) / 2;
+        } else {
+            return null;
+        }
+        return order >= Integer.MIN_VALUE && order <= Integer.MAX_VALUE ? (int) order : null;
+    }
+
+    /**
+     * Numbers the todos in list order, {@link #ORDER_GAP} apart, with one JDBC batch.
+     * Refuses, before writing anything, lists whose last number would not fit an int.
+     */
+    private int[] setOrder(List<Long> ids) {
+        if ((long) ids.size() * ORDER_GAP > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cannot space " + ids.size() + " todos " + ORDER_GAP + " apart");
+        }
+        return jdbc.getJdbcTemplate().batchUpdate(SET_ORDER, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setInt(1, Math.toIntExact((long) (i + 1) * ORDER_GAP));
+                statement.setLong(2, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+
+    /**
+     * Builds the page query from only the conditions in use, so that each combination has
+     * a plain plan over the indexes from V6. {@code completed} is inlined as a literal:
+     * a bind parameter would keep PostgreSQL's generic plans off the partial index.
+     * <p>
+     * Every cursor condition is a single index range, so a deep page costs the same as the
+     * first. For {@code sort=order} that takes two queries once a page reaches the end of
+     * the ordered todos: the rest of the page comes from those without an order, by id.
+     */
+    @Override
+    public List<TodoView> findPage(TodoQuery query, TodoQuery.Cursor after, int limit) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        if (query.completed() != null) {
+            conditions.add(query.completed() ? "completed" : "NOT completed");
+        }
+        if (query.titlePrefix() != null) {
+            conditions.add("title LIKE :titlePrefix ESCAPE '\\'");
+            params.addValue("titlePrefix", escapeLike(query.titlePrefix()) + "%", Types.VARCHAR);
+        }
+        if (after != null) {
+            params.addValue("afterId", after.id(), Types.BIGINT);
+        }
+
+        if (query.sort() == TodoQuery.Sort.ID) {
+            return selectPage(after == null ? conditions : with(conditions, "id > :afterId"),
+                    "id", params, limit);
+        }
+        if (after == null) {
+            return selectPage(conditions, "order_number NULLS LAST, id", params, limit);
+        }
+        if (after.order() == null) {
+            return selectPage(with(conditions, "order_number IS NULL AND id > :afterId"), "id", params, limit);
+        }
+
+        params.addValue("afterOrder", after.order(), Types.INTEGER);
+        List<TodoView> page = new ArrayList<>(selectPage(
+                with(conditions, "order_number >= :afterOrder AND (order_number > :afterOrder OR id > :afterId)"),
+                "order_number, id", params, limit));
+        if (page.size() < limit) {
+            page.addAll(selectPage(with(conditions, "order_number IS NULL"), "id", params, limit - page.size()));
+        }
+        return page;
+    }
+
+    private List<TodoView> selectPage(List<String> conditions, String orderBy, MapSqlParameterSource params, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM todo");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(orderBy).append(" LIMIT :limit");
+        return jdbc.query(sql.toString(), params.addValue("limit", limit, Types.INTEGER), VIEW_ROW_MAPPER);
+    }
+
+    private static List<String> with(List<String> conditions, String condition) {
+        List<String> all = new ArrayList<>(conditions);
+        all.add(condition);
+        return all;
+    }
+
+    @Override
+    public List<TodoView> search(String text, int limit, long offset) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("text", text, Types.VARCHAR)
+                .addValue("limit", limit, Types.INTEGER)
+                .addValue("offset", offset, Types.BIGINT);
+
+        return switch (vendor()) {
+            case POSTGRESQL -> jdbc.query(POSTGRESQL_SEARCH, params, VIEW_ROW_MAPPER);
+            case H2 -> {
+                List<String> conditions = new ArrayList<>();
+                for (String term : text.toLowerCase().split("\\s+")) {
+                    if (!term.isEmpty() && conditions.size() < MAX_SEARCH_TERMS) {
+                        String name = "term" + conditions.size();
+                        conditions.add("LOWER(title) LIKE :" + name + " ESCAPE '\\'");
+                        params.addValue(name, "%" + escapeLike(term) + "%", Types.VARCHAR);
+                    }
+                }
+                if (conditions.isEmpty()) {
+                    yield List.of();
+                }
+                yield jdbc.query("SELECT " + COLUMNS + " FROM todo"
+                        + " WHERE " + String.join(" AND ", conditions)
+                        + " ORDER BY id LIMIT :limit OFFSET :offset", params, VIEW_ROW_MAPPER);
+            }
+        };
+    }
+
+    @Override
+    public void prepareArchive(Instant archivedAt) {
+        if (vendor() != DatabaseVendor.POSTGRESQL) {
+            return;
+        }
+        String partition = PARTITION_MONTH.format(archivedAt);
+        Boolean exists = jdbc.getJdbcTemplate().queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        OffsetDateTime from = archivedAt.atOffset(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1)
+                .atStartOfDay().atOffset(ZoneOffset.UTC);
+        jdbc.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS " + partition
+                + " PARTITION OF todo_archive FOR VALUES FROM ('" + from + "') TO ('" + from.plusMonths(1) + "')");
+    }
+
+    @Override
+    @Transactional
+    public List<Long> archiveCompleted(Instant cutoff, Instant archivedAt, long after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", cutoff.atOffset(ZoneOffset.UTC), Types.TIMESTAMP_WITH_TIMEZONE)
+                .addValue("archivedAt", archivedAt.atOffset(ZoneOffset.UTC), Types.TIMESTAMP_WITH_TIMEZONE)
+                .addValue("after", after, Types.BIGINT)
+                .addValue("limit", limit, Types.INTEGER);
+
+        List<Long> ids = jdbc.queryForList(ARCHIVABLE_IDS, params, Long.class);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        params.addValue("ids", ids);
+        jdbc.update(COPY_TO_ARCHIVE, params);
+        jdbc.update("DELETE FROM todo WHERE id IN (:ids)", params);
+        return ids;
+    }
+
+    @Override
+    public List<TodoView> findArchivedPage(Long after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("after", after, Types.BIGINT)
+                .addValue("limit", limit, Types.INTEGER);
+        return jdbc.query("SELECT " + COLUMNS + " FROM todo_archive"
+                + (after == null ? "" : " WHERE id > :after")
+                + " ORDER BY id LIMIT :limit", params, VIEW_ROW_MAPPER);
+    }
+
+    @Override
+    public long currentRevision() {
+        return jdbc.getJdbcTemplate().queryForObject(CURRENT_REVISION, Long.class);
+    }
+
+    @Override
+    @Transactional
+    public void incrementRevision() {
+        jdbc.getJdbcTemplate().update(INCREMENT_REVISION);
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private String returning(String statement) {
+        return vendor().returning(statement, COLUMNS);
+    }
+
+    private DatabaseVendor vendor() {
+        DatabaseVendor detected = vendor;
+        if (detected == null) {
+            detected = DatabaseVendor.of(jdbc.getJdbcTemplate());
+            vendor = detected;
+        }
+        return detected;
+    }
+}
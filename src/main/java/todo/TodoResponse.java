@@ -1,5 +1,7 @@
 package todo;
 
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
 public class TodoResponse {
     private Long id;
     private String title;
@@ -22,12 +24,37 @@ public class TodoResponse {
     }
 
     static TodoResponse from(Todo todo) {
+        return from(todo, baseUrl());
+    }
+
+    /**
+     * Builds the response with a self link under an already resolved base URL. Callers
+     * mapping many todos should resolve {@link #baseUrl()} once and pass it in, since
+     * resolving it inspects the controller mapping and the current request every time.
+     */
+    static TodoResponse from(Todo todo, String baseUrl) {
         return new TodoResponse(
                 todo.getId(),
                 todo.getTitle(),
                 todo.isCompleted(),
                 todo.getOrderNumber(),
-                todo.getUrl());
+                baseUrl + "/" + todo.getId());
+    }
+
+    static TodoResponse from(TodoView todo, String baseUrl) {
+        return new TodoResponse(
+                todo.id(),
+                todo.title(),
+                todo.completed(),
+                todo.order(),
+                baseUrl + "/" + todo.id());
+    }
+
+    /**
+     * The URL of the todo collection for the current request, honouring forwarded headers.
+     */
+    static String baseUrl() {
+        return linkTo(TodoController.class).withSelfRel().getHref();
     }
 
     public Integer getOrder() {
@@ -0,0 +1,13 @@
+package todo;
+
+/**
+ * Immutable, request-independent projection of a todo: everything a {@link TodoResponse}
+ * carries except the self link, which depends on the request, plus the version used
+ * for ETags. Safe to cache and to share between threads.
+ */
+public record TodoView(Long id, String title, boolean completed, Integer order, long version) {
+    static TodoView of(Todo todo) {
+        return new TodoView(todo.getId(), todo.getTitle(), todo.isCompleted(), todo.getOrderNumber(),
+                todo.getVersion());
+    }
+}
@@ -0,0 +1,66 @@
+package todo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Opt-in virtual-thread execution, enabled with {@code spring.threads.virtual.enabled=true}
+ * (the {@code virtual-threads} profile). Spring Boot then runs Tomcat requests and async
+ * tasks on virtual threads; this adds the JDBC concurrency bound and pinning diagnostics.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    /**
+     * Hikari's own default, used when the pool size cannot be read.
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    /**
+     * Wraps the pool in a {@link ConcurrencyLimitingDataSource}. The limit defaults to the
+     * Hikari pool size so that waiting happens on the fair semaphore, not in the pool. The
+     * pool is found through {@link DataSource#unwrap}, so other wrappers such as
+     * {@link StatementCountingDataSource} may be applied before this one.
+     */
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                int maxConcurrency = environment.getProperty("todo.jdbc.max-concurrency", Integer.class,
+                        poolSize(dataSource));
+                Duration acquireTimeout = environment.getProperty("todo.jdbc.acquire-timeout", Duration.class,
+                        Duration.ofSeconds(30));
+                return new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeout);
+            }
+        };
+    }
+
+    static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            // Not a pool we can look into.
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    @Bean
+    VirtualThreadPinningMonitor virtualThreadPinningMonitor(Environment environment) {
+        return new VirtualThreadPinningMonitor(environment.getProperty("todo.virtual-threads.pinned-threshold",
+                Duration.class, Duration.ofMillis(20)));
+    }
+}
@@ -0,0 +1,80 @@
+package todo;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records {@code jdk.VirtualThreadPinned} JFR events in-process and exposes them as the
+ * actuator {@code pinning} endpoint, so it can be confirmed in a running instance that
+ * JDBC driver calls do not pin carrier threads.
+ */
+@Endpoint(id = "pinning")
+public class VirtualThreadPinningMonitor implements DisposableBean {
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int RECENT_EVENTS = 20;
+    private static final int STACK_DEPTH = 8;
+
+    private final RecordingStream recording = new RecordingStream();
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+    private final Duration threshold;
+
+    public VirtualThreadPinningMonitor(Duration threshold) {
+        this.threshold = threshold;
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::record);
+        recording.startAsync();
+    }
+
+    @ReadOperation
+    public Map<String, Object> pinning() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threshold", threshold.toString());
+        report.put("pinnedCount", pinnedCount.get());
+        synchronized (recent) {
+            report.put("recent", List.copyOf(recent));
+        }
+        return report;
+    }
+
+    private void record(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+
+        Map<String, Object> pinned = new LinkedHashMap<>();
+        pinned.put("time", event.getStartTime().toString());
+        pinned.put("duration", event.getDuration().toString());
+        pinned.put("stackTrace", event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames().stream()
+                .limit(STACK_DEPTH)
+                .map(VirtualThreadPinningMonitor::describe)
+                .toList());
+
+        synchronized (recent) {
+            if (recent.size() == RECENT_EVENTS) {
+                recent.removeLast();
+            }
+            recent.addFirst(pinned);
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void destroy() {
+        recording.close();
+    }
+}
@@ -1,12 +1,22 @@
 package todo;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+/**
+ * CORS and compressed request bodies. Deliberately not {@code @EnableWebMvc}, which would
+ * switch off Spring Boot's message converters (CBOR and Smile among them) and its
+ * {@code server.compression} settings.
+ */
 @Configuration
-@EnableWebMvc
+@Profile("!reactive")
 public class WebConfig implements WebMvcConfigurer {
     @Override public void addCorsMappings(CorsRegistry registry) {
         registry
@@ -14,4 +24,13 @@ public class WebConfig implements WebMvcConfigurer {
             .allowedMethods("*")
             .allowedOrigins("*");
     }
-}
\ No newline at end of file
+
+    @Bean
+    FilterRegistrationBean<CompressedRequestFilter> compressedRequestFilter(
+            @Value("${todo.request.max-inflated-size:64MB}") DataSize maxInflatedSize) {
+        FilterRegistrationBean<CompressedRequestFilter> registration =
+                new FilterRegistrationBean<>(new CompressedRequestFilter(maxInflatedSize.toBytes()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
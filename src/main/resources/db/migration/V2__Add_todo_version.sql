@@ -0,0 +1 @@
+ALTER TABLE todo ADD COLUMN version bigint not null default 0;
@@ -0,0 +1,9 @@
+-- Single-row, table-level change counter for the todo table. Bumped once per write request
+-- so list ETags can be computed without reading any todo rows.
+CREATE TABLE todo_revision
+(
+  id int primary key,
+  revision bigint not null
+);
+
+INSERT INTO todo_revision (id, revision) VALUES (1, 0);
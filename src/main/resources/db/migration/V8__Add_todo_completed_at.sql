@@ -0,0 +1,3 @@
+-- When a todo was last marked completed, NULL while it is open. Todos completed before
+-- this column existed keep NULL and count as completed long ago for archival.
+ALTER TABLE todo ADD COLUMN completed_at timestamp with time zone;
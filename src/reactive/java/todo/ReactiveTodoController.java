@@ -0,0 +1,174 @@
+package todo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.PATCH;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+/**
+ * The TodoBackend contract of {@link TodoController} on WebFlux and R2DBC, active with the
+ * {@code reactive} profile. Lists are keyset-paged like {@link TodoController#getAll}, with
+ * the same parameters and {@code Link} header; with {@code Accept: application/x-ndjson}
+ * every todo is streamed row by row from the database, one per line, and only as fast as
+ * the client reads it.
+ */
+@Controller
+@Profile("reactive")
+@RequestMapping(value = "/todos")
+public class ReactiveTodoController {
+    private final ReactiveTodoRepository repository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ReactiveTodoController(ReactiveTodoRepository repository,
+                                  @Value("${todo.pagination.default-limit:100}") int defaultPageSize,
+                                  @Value("${todo.pagination.max-limit:1000}") int maxPageSize) {
+        this.repository = repository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @RequestMapping("/hello")
+    public @ResponseBody
+    Mono<String> hello() {
+        return Mono.just("Hello, World!");
+    }
+
+    @RequestMapping(method = POST)
+    public @ResponseBody
+    Mono<TodoResponse> create(@RequestBody Todo newTodo, ServerHttpRequest request) {
+        return repository.insert(newTodo)
+                .flatMap(todo -> repository.incrementRevision().thenReturn(todo))
+                .map(todo -> TodoResponse.from(todo, baseUrl(request)));
+    }
+
+    /**
+     * One page of todos, at most {@code todo.pagination.max-limit} of them. A page is
+     * bounded, so it is collected before the response starts: the {@code Link} header to
+     * the next page can only be written once it is known whether there is one.
+     */
+    @RequestMapping(method = GET)
+    public Mono<ResponseEntity<List<TodoResponse>>> getAll(@RequestParam(value = "completed", required = false) Boolean completed,
+                                                           @RequestParam(value = "titlePrefix", required = false) String titlePrefix,
+                                                           @RequestParam(value = "sort", required = false) String sort,
+                                                           @RequestParam(value = "after", required = false) String after,
+                                                           @RequestParam(value = "limit", required = false) Integer limit,
+                                                           ServerHttpRequest request) {
+        int pageSize = pageSize(limit);
+        TodoQuery query = new TodoQuery(completed, titlePrefix, TodoQuery.Sort.parse(sort));
+        TodoQuery.Cursor cursor = TodoQuery.Cursor.parse(after, query.sort());
+        String baseUrl = baseUrl(request);
+
+        return repository.findPage(query, cursor, pageSize + 1)
+                .collectList()
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.size() > pageSize) {
+                        page = page.subList(0, pageSize);
+                        TodoQuery.Cursor next = TodoQuery.Cursor.after(page.get(pageSize - 1));
+                        response.header(HttpHeaders.LINK, nextLink(request, next.format(query.sort()), pageSize).toString());
+                    }
+                    return response.body(page.stream().map(todo -> TodoResponse.from(todo, baseUrl)).toList());
+                });
+    }
+
+    /**
+     * Every todo, optionally only those with the given completed flag, in id order, written
+     * as the rows arrive.
+     */
+    @RequestMapping(value = {"", "/export"}, method = GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public @ResponseBody
+    Flux<TodoResponse> stream(@RequestParam(value = "completed", required = false) Boolean completed,
+                              ServerHttpRequest request) {
+        String baseUrl = baseUrl(request);
+        return repository.findAll(completed)
+                .map(todo -> TodoResponse.from(todo, baseUrl));
+    }
+
+    @RequestMapping(method = DELETE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<Void> delete(@RequestParam(value = "completed", required = false) Boolean completed) {
+        return repository.deleteAll(completed)
+                .then(repository.incrementRevision());
+    }
+
+    @RequestMapping(value = "/{id}", method = GET)
+    public @ResponseBody
+    Mono<TodoResponse> getOne(@PathVariable("id") Long id, ServerHttpRequest request) {
+        return repository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo does not exist!")))
+                .map(todo -> TodoResponse.from(todo, baseUrl(request)));
+    }
+
+    @RequestMapping(value = "/{id}", method = PATCH)
+    public @ResponseBody
+    Mono<TodoResponse> edit(@RequestBody TodoPatchRequest updates, @PathVariable("id") Long id,
+                            ServerHttpRequest request) {
+        return repository.patch(id, updates)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found")))
+                .flatMap(todo -> repository.incrementRevision().thenReturn(todo))
+                .map(todo -> TodoResponse.from(todo, baseUrl(request)));
+    }
+
+    @RequestMapping(value = "/{id}", method = DELETE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<Void> deleteById(@PathVariable("id") Long id) {
+        return repository.deleteById(id)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.<Void>error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found"))
+                        : repository.incrementRevision());
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private static Link nextLink(ServerHttpRequest request, String after, int pageSize) {
+        String href = UriComponentsBuilder.fromUri(request.getURI())
+                .replaceQueryParam("after", after)
+                .replaceQueryParam("limit", pageSize)
+                .build()
+                .toUriString();
+        return Link.of(href, IanaLinkRelations.NEXT);
+    }
+
+    /**
+     * The URL of the todo collection, the reactive equivalent of {@link TodoResponse#baseUrl()}.
+     */
+    private static String baseUrl(ServerHttpRequest request) {
+        return UriComponentsBuilder.fromUri(request.getURI())
+                .replacePath(request.getPath().contextPath().value() + "/todos")
+                .replaceQuery(null)
+                .build()
+                .toUriString();
+    }
+}
@@ -0,0 +1,182 @@
+package todo;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking counterpart of {@link TodoRepository} for the {@code reactive} profile,
+ * over R2DBC against the same Flyway-managed schema. Statements are the same as in
+ * {@link TodoRepositoryCustomImpl}, so both stacks behave alike on a shared database.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveTodoRepository {
+    /**
+     * Rows fetched per round trip when streaming, which lets backpressure from a slow
+     * client reach the database instead of buffering the table.
+     */
+    static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient client;
+    private final DatabaseVendor vendor;
+
+    public ReactiveTodoRepository(DatabaseClient client, ConnectionFactory connectionFactory) {
+        this.client = client;
+        this.vendor = DatabaseVendor.of(connectionFactory.getMetadata().getName());
+    }
+
+    /**
+     * Same keyset page as {@link TodoRepositoryCustom#findPage}, with the same statements.
+     */
+    public Flux<TodoView> findPage(TodoQuery query, TodoQuery.Cursor after, int limit) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+
+        if (query.completed() != null) {
+            conditions.add(query.completed() ? "completed" : "NOT completed");
+        }
+        if (query.titlePrefix() != null) {
+            conditions.add("title LIKE :titlePrefix ESCAPE '\\'");
+            params.put("titlePrefix", TodoRepositoryCustomImpl.escapeLike(query.titlePrefix()) + "%");
+        }
+        if (after != null) {
+            params.put("afterId", after.id());
+        }
+
+        if (query.sort() == TodoQuery.Sort.ID) {
+            return selectPage(after == null ? conditions : with(conditions, "id > :afterId"), "id", params, limit);
+        }
+        if (after == null) {
+            return selectPage(conditions, "order_number NULLS LAST, id", params, limit);
+        }
+        if (after.order() == null) {
+            return selectPage(with(conditions, "order_number IS NULL AND id > :afterId"), "id", params, limit);
+        }
+
+        params.put("afterOrder", after.order());
+        AtomicInteger ordered = new AtomicInteger();
+        return selectPage(
+                with(conditions, "order_number >= :afterOrder AND (order_number > :afterOrder OR id > :afterId)"),
+                "order_number, id", params, limit)
+                .doOnNext(todo -> ordered.incrementAndGet())
+                .concatWith(Flux.defer(() -> ordered.get() < limit
+                        ? selectPage(with(conditions, "order_number IS NULL"), "id", params, limit - ordered.get())
+                        : Flux.empty()));
+    }
+
+    /**
+     * Every todo, optionally only those with the given completed flag, in id order.
+     */
+    public Flux<TodoView> findAll(Boolean completed) {
+        String select = "SELECT " + TodoRepositoryCustomImpl.COLUMNS + " FROM todo"
+                + (completed == null ? "" : completed ? " WHERE completed" : " WHERE NOT completed")
+                + " ORDER BY id";
+        return client.sql(select)
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(ReactiveTodoRepository::view)
+                .all();
+    }
+
+    public Mono<TodoView> findById(Long id) {
+        return client.sql("SELECT " + TodoRepositoryCustomImpl.COLUMNS + " FROM todo WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveTodoRepository::view)
+                .one();
+    }
+
+    public Mono<TodoView> insert(Todo todo) {
+        String insert = "INSERT INTO todo (id, title, completed, completed_at, order_number)"
+                + " VALUES (" + vendor.nextValue("todo_seq") + ", :title, :completed,"
+                + " CASE WHEN :completed THEN CURRENT_TIMESTAMP END, :order)";
+        DatabaseClient.GenericExecuteSpec spec = client.sql(vendor.returning(insert, TodoRepositoryCustomImpl.COLUMNS))
+                .bind("completed", todo.isCompleted());
+        spec = bind(spec, "title", todo.getTitle(), String.class);
+        spec = bind(spec, "order", todo.getOrderNumber(), Integer.class);
+        return spec.map(ReactiveTodoRepository::view).one();
+    }
+
+    /**
+     * Same partial update as {@link TodoRepositoryCustom#patch} without a version check.
+     */
+    public Mono<TodoView> patch(Long id, TodoPatchRequest updates) {
+        DatabaseClient.GenericExecuteSpec spec = client
+                .sql(vendor.returning(TodoRepositoryCustomImpl.UPDATE, TodoRepositoryCustomImpl.COLUMNS))
+                .bind("id", id);
+        spec = bind(spec, "title", updates.getTitle(), String.class);
+        spec = bind(spec, "completed", updates.getCompleted(), Boolean.class);
+        spec = bind(spec, "order", updates.getOrder(), Integer.class);
+        return spec.map(ReactiveTodoRepository::view).one();
+    }
+
+    /**
+     * @return the number of rows deleted, zero when the todo did not exist
+     */
+    public Mono<Long> deleteById(Long id) {
+        return client.sql("DELETE FROM todo WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteAll(Boolean completed) {
+        String delete = "DELETE FROM todo"
+                + (completed == null ? "" : completed ? " WHERE completed" : " WHERE NOT completed");
+        return client.sql(delete)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Advances the table-level change counter shared with the servlet stack.
+     */
+    public Mono<Void> incrementRevision() {
+        return client.sql("UPDATE todo_revision SET revision = revision + 1 WHERE id = 1")
+                .then();
+    }
+
+    private Flux<TodoView> selectPage(List<String> conditions, String orderBy, Map<String, Object> params, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(TodoRepositoryCustomImpl.COLUMNS).append(" FROM todo");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(orderBy).append(" LIMIT :limit");
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString()).bind("limit", limit);
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            if (sql.indexOf(":" + param.getKey()) >= 0) {
+                spec = spec.bind(param.getKey(), param.getValue());
+            }
+        }
+        return spec.map(ReactiveTodoRepository::view).all();
+    }
+
+    private static List<String> with(List<String> conditions, String condition) {
+        List<String> all = new ArrayList<>(conditions);
+        all.add(condition);
+        return all;
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static TodoView view(Readable row) {
+        return new TodoView(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                Boolean.TRUE.equals(row.get("completed", Boolean.class)),
+                row.get("order_number", Integer.class),
+                row.get("version", Long.class));
+    }
+}
@@ -0,0 +1,20 @@
+package todo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles(profiles = "reactive")
+public class ReactiveContractTest extends TodoBackendContract {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Override
+    protected WebTestClient client() {
+        return webTestClient.mutate().baseUrl("http://localhost").build();
+    }
+}
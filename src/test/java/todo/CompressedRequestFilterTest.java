@@ -0,0 +1,136 @@
+package todo;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompressedRequestFilterTest {
+    private static final String BODY = "{ \"title\": \"compressed todo\" }";
+
+    @Test
+    public void shouldInflateABodyReadWithoutBlocking() throws Exception {
+        ListenableInputStream raw = new ListenableInputStream(gzip(BODY));
+        AtomicReference<ServletRequest> filtered = new AtomicReference<>();
+        new CompressedRequestFilter(1024).doFilter(request(raw), new MockHttpServletResponse(),
+                (request, response) -> filtered.set(request));
+
+        ServletInputStream in = filtered.get().getInputStream();
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buffer = new byte[7];
+                int n;
+                while (in.isReady() && (n = in.read(buffer)) != -1) {
+                    inflated.write(buffer, 0, n);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new AssertionError(t);
+            }
+        });
+        assertThat(in.isReady()).isFalse();
+
+        raw.arrive();
+
+        assertThat(inflated.toString(StandardCharsets.UTF_8)).isEqualTo(BODY);
+        assertThat(in.isFinished()).isTrue();
+        assertThat(allDataRead).isTrue();
+    }
+
+    @Test
+    public void shouldInflateABodyReadBlocking() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/todos/batch");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(gzip(BODY));
+        AtomicReference<ServletRequest> filtered = new AtomicReference<>();
+        new CompressedRequestFilter(1024).doFilter(request, new MockHttpServletResponse(),
+                (req, response) -> filtered.set(req));
+
+        assertThat(new String(filtered.get().getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+        assertThat(filtered.get().getContentLength()).isEqualTo(-1);
+    }
+
+    private static MockHttpServletRequest request(ServletInputStream body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/todos/batch") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return body;
+            }
+        };
+        request.addHeader("Content-Encoding", "gzip");
+        return request;
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * A container's input stream in non-blocking mode: nothing is ready until the body
+     * {@link #arrive() arrives}, which then calls the listener like a container would.
+     */
+    private static final class ListenableInputStream extends ServletInputStream {
+        private final ByteArrayInputStream body;
+        private ReadListener listener;
+        private boolean arrived;
+
+        ListenableInputStream(byte[] body) {
+            this.body = new ByteArrayInputStream(body);
+        }
+
+        void arrive() throws IOException {
+            arrived = true;
+            listener.onDataAvailable();
+            listener.onAllDataRead();
+        }
+
+        @Override
+        public int read() {
+            if (!arrived) {
+                throw new IllegalStateException("not ready");
+            }
+            return body.read();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return arrived && body.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return arrived && body.available() > 0;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package todo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimitingDataSourceTest {
+    @Test
+    public void shouldHoldAPermitUntilTheConnectionIsClosed() throws Exception {
+        DataSource pool = Mockito.mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> Mockito.mock(Connection.class));
+        ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(pool, 1, Duration.ofMillis(10));
+
+        Connection connection = dataSource.getConnection();
+
+        assertThat(dataSource.availablePermits()).isZero();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReleaseThePermitWhenThePoolFails() throws Exception {
+        DataSource pool = Mockito.mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool exhausted"));
+        ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(pool, 1, Duration.ofMillis(10));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("pool exhausted");
+
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldTakeTheLimitFromTheHikariPoolBehindOtherWrappers() {
+        HikariDataSource hikari = new HikariDataSource();
+        hikari.setMaximumPoolSize(25);
+        DataSource counted = new StatementCountingDataSource(hikari);
+
+        Object limited = VirtualThreadConfig.concurrencyLimitingDataSourcePostProcessor(new MockEnvironment())
+                .postProcessAfterInitialization(counted, "dataSource");
+
+        assertThat(limited).isInstanceOf(ConcurrencyLimitingDataSource.class);
+        assertThat(((ConcurrencyLimitingDataSource) limited).availablePermits()).isEqualTo(25);
+    }
+}
@@ -2,29 +2,38 @@ package todo;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.web.server.ResponseStatusException;
-import org.springframework.http.HttpStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
-import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static todo.WebLayerTest.API_ROOT;
 
@@ -37,269 +46,474 @@ public class MockMvcTest {
     private MockMvc mockMvc;
     @Autowired
     private TodoRepository todoRepository;
+    @Autowired
+    private TodoArchiver todoArchiver;
+    @Autowired
+    private ApplicationEventPublisher events;
 
     @AfterEach
     public void cleanUp() {
         todoRepository.deleteAll();
+        todoRepository.incrementRevision();
     }
 
     @Test
-    public void shouldStartFullSpringContextWithoutServerAndRetrieveMessage() throws Exception {
-        mockMvc.perform(get("/todos/hello"))
+    public void shouldSearchTodoTitlesOnePageAtATime() throws Exception {
+        todoRepository.save(new Todo("Water the plants"));
+        todoRepository.save(new Todo("Water the garden"));
+        todoRepository.save(new Todo("Mow the lawn"));
+
+        mockMvc.perform(
+                get(API_ROOT + "/search").param("q", "water").param("limit", "1"))
                 .andExpect(status().isOk())
-                .andExpect(content().string(containsString("Hello, World!")));
-    }
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value(containsString("Water")))
+                .andExpect(header().string("Link", containsString("offset=1")));
 
-    @Test
-    public void shouldAllowCors() throws Exception {
-        mockMvc.perform(options("/todos/hello")
-                .header("Access-Control-Request-Method", "GET")
-                .header("Origin", "www.somethingelse.com"))
-                .andExpect(status().isOk());
+        mockMvc.perform(
+                get(API_ROOT + "/search").param("q", " "))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
-    public void shouldBeAbleToGetAnEmptyListOfTodos() throws Exception {
+    public void shouldReorderTodosAndMoveOneToTheFront() throws Exception {
+        Todo first = todoRepository.save(new Todo("first"));
+        Todo second = todoRepository.save(new Todo("second"));
+        Todo third = todoRepository.save(new Todo("third"));
+
         mockMvc.perform(
-                get(API_ROOT))
+                post(API_ROOT + "/reorder")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(List.of(third.getId(), first.getId(), second.getId()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(third.getId()))
+                .andExpect(jsonPath("$[2].id").value(second.getId()));
+
+        mockMvc.perform(
+                post(API_ROOT + "/" + second.getId() + "/move"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("[]"));
+                .andExpect(header().exists("ETag"));
+
+        mockMvc.perform(
+                get(API_ROOT).param("sort", "order"))
+                .andExpect(jsonPath("$[0].id").value(second.getId()))
+                .andExpect(jsonPath("$[1].id").value(third.getId()))
+                .andExpect(jsonPath("$[2].id").value(first.getId()));
+
+        mockMvc.perform(
+                post(API_ROOT + "/reorder")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(List.of(first.getId(), Long.MAX_VALUE))))
+                .andExpect(status().isNotFound());
     }
 
     @Test
-    public void shouldBeAbleToAddATodo() throws Exception {
-        MvcResult result = mockMvc.perform(
-                post(API_ROOT)
+    public void shouldPatchManyTodosInOneRequestAndReportEachItem() throws Exception {
+        Todo first = todoRepository.save(new Todo("first"));
+        Todo second = todoRepository.save(new Todo("second"));
+
+        String body = "{ \"" + first.getId() + "\": { \"completed\": true },"
+                + " \"" + Long.MAX_VALUE + "\": { \"completed\": true },"
+                + " \"" + second.getId() + "\": { \"title\": \"" + "x".repeat(101) + "\" } }";
+
+        mockMvc.perform(
+                patch(API_ROOT)
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("{ \"title\": \"test todo\" }".getBytes())
+                        .content(body.getBytes())
                         .characterEncoding("utf-8"))
                 .andExpect(status().isOk())
-                .andReturn();
-
-        TodoResponse createdTodo = objectMapper.readValue(result.getResponse().getContentAsString(),
-                TodoResponse.class);
-
-        TodoResponse expected = new TodoResponse(null, "test todo", false, null, null);
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].todo.completed").value(true))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[2].status").value(400));
 
-        assertThat(createdTodo).isEqualToIgnoringNullFields(expected);
-        assertThat(createdTodo).hasNoNullFieldsOrPropertiesExcept("order");
-        assertThat(createdTodo.getTitle()).isEqualTo("test todo");
+        assertThat(todoRepository.findById(second.getId()).orElseThrow().getTitle()).isEqualTo("second");
     }
 
     @Test
-    public void shouldBeAbleToDeleteAllExistingTodos() throws Exception {
+    public void shouldExportAllTodosAsAJsonArray() throws Exception {
+        todoRepository.save(new Todo("first"));
+        todoRepository.save(new Todo("second"));
+
         mockMvc.perform(
-                delete(API_ROOT))
-                .andExpect(status().isOk());
+                get(API_ROOT + "/export"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("first"))
+                .andExpect(jsonPath("$[1].url").value(containsString("/todos/")));
     }
 
     @Test
-    public void shouldSetUpANewTodoAsInitiallyNotCompleted() throws Exception {
-        MvcResult result = mockMvc.perform(
+    public void shouldExposeTheVersionAsAnETagAndHonourIfMatchOnPatch() throws Exception {
+        MvcResult created = mockMvc.perform(
                 post(API_ROOT)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{ \"title\": \"test todo\" }".getBytes())
                         .characterEncoding("utf-8"))
                 .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
                 .andReturn();
 
-        TodoResponse resultTodo = objectMapper.readValue(result.getResponse().getContentAsString(), TodoResponse.class);
-
-        assertThat(resultTodo.isCompleted()).isFalse();
-    }
+        String url = objectMapper.readValue(created.getResponse().getContentAsString(), TodoResponse.class).getUrl();
+        String etag = created.getResponse().getHeader("ETag");
 
-    @Test
-    public void shouldSetUpANewTodoWithAUniqueUrlEqualToItsId() throws Exception {
-        MvcResult result = mockMvc.perform(
-                post(API_ROOT)
+        MvcResult patched = mockMvc.perform(
+                patch(url)
+                        .header("If-Match", etag)
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("{ \"title\": \"test todo\" }".getBytes())
+                        .content("{ \"title\": \"first edit\" }".getBytes())
                         .characterEncoding("utf-8"))
                 .andExpect(status().isOk())
                 .andReturn();
 
-        TodoResponse createdTodo = objectMapper.readValue(result.getResponse().getContentAsString(),
-                TodoResponse.class);
+        assertThat(patched.getResponse().getHeader("ETag")).isNotEqualTo(etag);
+
+        mockMvc.perform(
+                patch(url)
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"title\": \"lost update\" }".getBytes())
+                        .characterEncoding("utf-8"))
+                .andExpect(status().isPreconditionFailed());
 
-        assertThat(createdTodo.getUrl()).isEqualTo("http://localhost/todos/" + createdTodo.getId());
+        mockMvc.perform(
+                get(url))
+                .andExpect(jsonPath("$.title").value("first edit"));
     }
 
     @Test
-    public void shouldBeAbleToRetrieveATodoByItsUrl() throws Exception {
-        MvcResult newTodoRequest = mockMvc.perform(
+    public void shouldAnswerAnUnchangedListPollWithNotModified() throws Exception {
+        MvcResult first = mockMvc.perform(
+                get(API_ROOT))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(
+                get(API_ROOT).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(
                 post(API_ROOT)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{ \"title\": \"test todo\" }".getBytes())
                         .characterEncoding("utf-8"))
-                .andExpect(status().isOk())
-                .andReturn();
+                .andExpect(status().isOk());
 
-        TodoResponse newTodo = objectMapper.readValue(newTodoRequest.getResponse().getContentAsString(),
-                TodoResponse.class);
+        mockMvc.perform(
+                get(API_ROOT).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
 
-        System.out.println(newTodo.getUrl());
+    @Test
+    public void shouldServeTheListGzippedToClientsThatAcceptIt() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            mockMvc.perform(
+                    post(API_ROOT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(("{ \"title\": \"todo number " + i + "\" }").getBytes())
+                            .characterEncoding("utf-8"))
+                    .andExpect(status().isOk());
+        }
+
+        MvcResult plain = mockMvc.perform(
+                get(API_ROOT))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn();
+        assertThat(String.join(",", plain.getResponse().getHeaders("Vary"))).contains("Accept-Encoding");
 
-        MvcResult readBackTodo = mockMvc.perform(
-                get(newTodo.getUrl()))
-                .andDo(print())
+        MvcResult gzipped = mockMvc.perform(
+                get(API_ROOT).header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
                 .andReturn();
 
-        TodoResponse resultTodo = objectMapper.readValue(readBackTodo.getResponse().getContentAsString(),
-                TodoResponse.class);
+        assertThat(gzipped.getResponse().getHeader("ETag"))
+                .isNotEqualTo(plain.getResponse().getHeader("ETag"));
+        byte[] body = gzipped.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.getResponse().getContentAsByteArray());
+        }
 
-        assertThat(resultTodo).isEqualToComparingFieldByField(newTodo);
+        mockMvc.perform(
+                get(API_ROOT).header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.length()").value(40));
     }
 
     @Test
-    public void shouldBeAbleToPatchATodoWithAPartialUpdateToTitle() throws Exception {
-        Todo newTodo = new Todo("initial title");
+    public void shouldAnswerAnUnchangedTodoWithNotModified() throws Exception {
+        Todo saved = todoRepository.save(new Todo("test todo"));
 
-        Todo savedTodo = todoRepository.save(newTodo);
+        MvcResult first = mockMvc.perform(
+                get(API_ROOT + "/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
 
-        Todo readBackTodo = todoRepository.findById(savedTodo.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found!"));
+        mockMvc.perform(
+                get(API_ROOT + "/" + saved.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
 
-        MvcResult result = mockMvc.perform(
-                patch(API_ROOT + "/" + readBackTodo.getId())
+        mockMvc.perform(
+                patch(API_ROOT + "/" + saved.getId())
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("{ \"title\": \"edited title\" }".getBytes())
+                        .content("{ \"completed\": true }".getBytes())
                         .characterEncoding("utf-8"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(
+                get(API_ROOT + "/" + saved.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true));
+    }
+
+    @Test
+    public void shouldTagEachRepresentationOfATodoSeparately() throws Exception {
+        Todo saved = todoRepository.save(new Todo("test todo"));
+
+        MvcResult json = mockMvc.perform(
+                get(API_ROOT + "/" + saved.getId()))
                 .andExpect(status().isOk())
                 .andReturn();
+        assertThat(String.join(",", json.getResponse().getHeaders("Vary"))).contains("Accept", "Accept-Encoding");
+        String etag = json.getResponse().getHeader("ETag");
 
-        TodoResponse editedTodo = objectMapper.readValue(result.getResponse().getContentAsString(), TodoResponse.class);
+        MvcResult cbor = mockMvc.perform(
+                get(API_ROOT + "/" + saved.getId()).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        String cborETag = cbor.getResponse().getHeader("ETag");
+        assertThat(cborETag).isNotEqualTo(etag);
+        assertThat(new ObjectMapper(new CBORFactory())
+                .readValue(cbor.getResponse().getContentAsByteArray(), TodoResponse.class).getTitle())
+                .isEqualTo("test todo");
 
-        TodoResponse expected = new TodoResponse(readBackTodo.getId(), "edited title", readBackTodo.isCompleted(),
-                null, "http://localhost/todos/" + readBackTodo.getId());
+        mockMvc.perform(
+                get(API_ROOT + "/" + saved.getId()).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborETag))
+                .andExpect(status().isNotModified());
 
-        assertThat(editedTodo).isEqualToComparingFieldByField(expected);
+        mockMvc.perform(
+                patch(API_ROOT + "/" + saved.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"completed\": true }".getBytes())
+                        .characterEncoding("utf-8")
+                        .header("If-Match", cborETag))
+                .andExpect(status().isOk());
     }
 
     @Test
-    public void shouldBeAbleToPatchATodoWithAPartialUpdateToCompleted() throws Exception {
-        Todo newTodo = new Todo(null, "initial title", false, null);
-
-        Todo savedTodo = todoRepository.save(newTodo);
-
-        Todo readBackTodo = todoRepository.findById(savedTodo.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found!"));
-
-        MvcResult result = mockMvc.perform(
-                patch(API_ROOT + "/" + readBackTodo.getId())
+    public void shouldCreateABatchOfTodosAndReportEachItem() throws Exception {
+        mockMvc.perform(
+                post(API_ROOT + "/batch")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("{ \"completed\": \"true\" }".getBytes())
+                        .content("[{ \"title\": \"first\" }, { \"completed\": true }, { \"title\": \"third\", \"order\": 3 }]".getBytes())
                         .characterEncoding("utf-8"))
                 .andExpect(status().isOk())
-                .andReturn();
-
-        TodoResponse expected = new TodoResponse(readBackTodo.getId(), "initial title", true, null, "http://localhost" +
-                "/todos/" + readBackTodo.getId());
-        TodoResponse edited = objectMapper.readValue(result.getResponse().getContentAsString(), TodoResponse.class);
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].todo.title").value("first"))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].error").value("title is required"))
+                .andExpect(jsonPath("$[2].todo.order").value(3));
 
-        assertThat(edited).isEqualToComparingFieldByField(expected);
+        mockMvc.perform(
+                get(API_ROOT))
+                .andExpect(jsonPath("$.length()").value(2));
     }
 
     @Test
-    public void shouldReturnExitingTodoWithAnEmptyPatch() throws Exception {
-        Todo newTodo = new Todo(null, "initial title", true, null);
+    public void shouldRejectAJsonArrayBatchLargerThanTheMaximumPageSize() throws Exception {
+        String tooMany = "[" + String.join(",", Collections.nCopies(1001, "{ \"title\": \"t\" }")) + "]";
 
-        Todo savedTodo = todoRepository.save(newTodo);
+        mockMvc.perform(
+                post(API_ROOT + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMany.getBytes())
+                        .characterEncoding("utf-8"))
+                .andExpect(status().isBadRequest());
 
-        Todo readBackTodo = todoRepository.findById(savedTodo.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Todo not found!"));
-        TodoResponse expected = TodoResponse.from(readBackTodo);
+        mockMvc.perform(
+                get(API_ROOT))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
 
-        MvcResult result = mockMvc.perform(
-                patch(API_ROOT + "/" + readBackTodo.getId())
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content("{}".getBytes())
+    @Test
+    public void shouldCreateABatchOfTodosFromNewlineDelimitedJson() throws Exception {
+        mockMvc.perform(
+                post(API_ROOT + "/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{ \"title\": \"first\" }\n{ \"title\": \"second\" }\n".getBytes())
                         .characterEncoding("utf-8"))
                 .andExpect(status().isOk())
-                .andReturn();
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].todo.title").value("second"));
+    }
 
-        TodoResponse editedTodo = objectMapper.readValue(result.getResponse().getContentAsString(), TodoResponse.class);
+    @Test
+    public void shouldKeepTheNdjsonLinesBeforeAMalformedOne() throws Exception {
+        mockMvc.perform(
+                post(API_ROOT + "/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{ \"title\": \"first\" }\n{ \"title\": \n".getBytes())
+                        .characterEncoding("utf-8"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].error").value(containsString("malformed JSON")));
 
-        assertThat(editedTodo).isEqualToComparingFieldByField(expected);
+        mockMvc.perform(
+                get(API_ROOT))
+                .andExpect(jsonPath("$.length()").value(1));
     }
 
     @Test
-    public void shouldPersistChangesAndShowUpWhenReFetchingTheTodo() throws Exception {
-        // TODO: Move to Database Integration Test
-        Todo newTodo = new Todo(null, "initial title", false, null);
+    public void shouldCreateABatchOfTodosFromAGzippedBody() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("{ \"title\": \"first\" }\n{ \"title\": \"second\" }\n".getBytes(StandardCharsets.UTF_8));
+        }
 
-        Todo savedTodo = todoRepository.save(newTodo);
+        mockMvc.perform(
+                post(API_ROOT + "/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header("Content-Encoding", "gzip")
+                        .content(compressed.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].todo.title").value("second"));
 
-        Todo readBackTodo = todoRepository.findById(savedTodo.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found"));
+        mockMvc.perform(
+                post(API_ROOT + "/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header("Content-Encoding", "br")
+                        .content(compressed.toByteArray()))
+                .andExpect(status().isUnsupportedMediaType());
+    }
 
-        TodoResponse expected = new TodoResponse(
-                savedTodo.getId(),
-                "changed title",
-                true,
-                null,
-                "http://localhost/todos/" + savedTodo.getId());
+    @Test
+    public void shouldServeTheListAsCborOrSmileWhenAccepted() throws Exception {
+        todoRepository.save(new Todo("first"));
+        todoRepository.save(new Todo("second"));
 
-        MvcResult patchResult = mockMvc.perform(
-                patch(API_ROOT + "/" + readBackTodo.getId())
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content("{ \"title\": \"changed title\", \"completed\": \"true\" }".getBytes())
-                        .characterEncoding("utf-8"))
+        MvcResult cbor = mockMvc.perform(
+                get(API_ROOT).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
                 .andReturn();
+        List<TodoResponse> todos = new ObjectMapper(new CBORFactory())
+                .readValue(cbor.getResponse().getContentAsByteArray(), new TypeReference<List<TodoResponse>>() {});
+        assertThat(todos).extracting(TodoResponse::getTitle).containsExactly("first", "second");
+
+        MvcResult smile = mockMvc.perform(
+                get(API_ROOT).header("Accept", "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(TodoController.APPLICATION_SMILE))
+                .andReturn();
+        todos = new ObjectMapper(new SmileFactory())
+                .readValue(smile.getResponse().getContentAsByteArray(), new TypeReference<List<TodoResponse>>() {});
+        assertThat(todos).hasSize(2);
+
+        mockMvc.perform(
+                get(API_ROOT).accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+    }
 
-        TodoResponse editedTodo = objectMapper.readValue(patchResult.getResponse().getContentAsString(),
-                TodoResponse.class);
+    @Test
+    public void shouldServeArchivedTodosOnlyFromTheArchive() throws Exception {
+        Todo done = todoRepository.save(new Todo(null, "done", true, null));
+        Todo open = todoRepository.save(new Todo(null, "open", false, null));
 
-        assertThat(editedTodo).isEqualToComparingFieldByField(expected);
+        assertThat(todoArchiver.archiveCompletedBefore(Instant.now().plusSeconds(60))).isEqualTo(1);
 
-        MvcResult getResult = mockMvc.perform(
+        mockMvc.perform(
                 get(API_ROOT))
-                .andReturn();
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(open.getId()));
 
-        List<TodoResponse> editedTodos = objectMapper.readValue(getResult.getResponse().getContentAsString(),
-                new TypeReference<List<TodoResponse>>() {
-                });
+        mockMvc.perform(
+                get(API_ROOT + "/" + done.getId()))
+                .andExpect(status().isNotFound());
 
-        assertThat(editedTodos.get(0)).isEqualToIgnoringNullFields(expected);
-        assertThat(editedTodos.get(0).getUrl()).isNotNull();
+        mockMvc.perform(
+                get(API_ROOT + "/archive").param("after", String.valueOf(done.getId() - 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("done"))
+                .andExpect(jsonPath("$[0].completed").value(true));
     }
 
     @Test
-    public void shouldDeleteATodoWhenMakingADeleteRequestToItsUrl() throws Exception {
-        MvcResult newTodoRequest = mockMvc.perform(
+    public void shouldStreamChangesAndReplayThemAfterLastEventId() throws Exception {
+        MvcResult stream = mockMvc.perform(
+                get(API_ROOT + "/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(
                 post(API_ROOT)
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("{ \"title\": \"test todo\" }".getBytes())
+                        .content("{ \"title\": \"streamed todo\" }".getBytes())
                         .characterEncoding("utf-8"))
-                .andExpect(status().isOk())
+                .andExpect(status().isOk());
+
+        String events = awaitContent(stream, "streamed todo");
+        assertThat(events).contains("event:created");
+        String eventId = events.replaceAll("(?s).*id:(\\w+-\\d+)\n.*", "$1");
+        String epoch = eventId.substring(0, eventId.lastIndexOf('-'));
+        long sequence = Long.parseLong(eventId.substring(eventId.lastIndexOf('-') + 1));
+
+        MvcResult resumed = mockMvc.perform(
+                get(API_ROOT + "/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", epoch + "-" + (sequence - 1)))
+                .andExpect(request().asyncStarted())
                 .andReturn();
 
-        TodoResponse response = objectMapper.readValue(newTodoRequest.getResponse().getContentAsString(),
-                TodoResponse.class);
+        assertThat(awaitContent(resumed, "streamed todo")).contains("id:" + eventId);
 
-        mockMvc.perform(
-                delete(response.getUrl()))
-                .andExpect(status().isOk());
+        MvcResult restarted = mockMvc.perform(
+                get(API_ROOT + "/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "earlier-" + (sequence - 1)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(
-                get(API_ROOT))
-                .andExpect(status().isOk())
-                .andExpect(content().string("[]"));
+        assertThat(awaitContent(restarted, "event:reset"))
+                .contains("event:reset")
+                .doesNotContain("streamed todo");
     }
 
     @Test
-    public void shouldCreateATodoWithAnOrderField() throws Exception {
-        MvcResult newTodoRequest = mockMvc.perform(
-                post(API_ROOT)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(("{ \"title\": \"test todo\", \"order\": 523}").getBytes())
-                        .characterEncoding("utf-8"))
-                .andExpect(status().isOk())
-                .andDo(print())
+    public void shouldStreamChangesMadeOnOtherNodes() throws Exception {
+        MvcResult stream = mockMvc.perform(
+                get(API_ROOT + "/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
                 .andReturn();
 
-        TodoResponse newTodo = objectMapper.readValue(newTodoRequest.getResponse().getContentAsString(),
-                TodoResponse.class);
+        // Written behind this node's back and announced by the bus, as another node's write is.
+        Todo saved = todoRepository.save(new Todo("remote todo"));
+        events.publishEvent(new RemoteTodoChange(TodoChangedEvent.Type.CREATED, saved.getId(), saved.getVersion()));
+
+        assertThat(awaitContent(stream, "remote todo")).contains("event:created");
+    }
 
-        assertThat(newTodo.getOrder()).isEqualTo(523);
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package todo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RemoteTodoChangeTest {
+    @Test
+    public void shouldParseTheNotificationsSentByTheTrigger() {
+        assertThat(RemoteTodoChange.parse("update:12@3,15@7")).containsExactly(
+                new RemoteTodoChange(TodoChangedEvent.Type.UPDATED, 12L, 3L),
+                new RemoteTodoChange(TodoChangedEvent.Type.UPDATED, 15L, 7L));
+        assertThat(RemoteTodoChange.parse("delete:5")).containsExactly(
+                new RemoteTodoChange(TodoChangedEvent.Type.DELETED, 5L, null));
+        assertThat(RemoteTodoChange.parse("clear")).containsExactly(RemoteTodoChange.cleared());
+    }
+
+    @Test
+    public void shouldRoundTripLocalChangesThroughTheWireFormat() {
+        TodoView todo = new TodoView(1L, "Clean kitchen", false, null, 2);
+
+        assertThat(RemoteTodoChange.parse(RemoteTodoChange.format(TodoChangedEvent.updated(todo))))
+                .containsExactly(new RemoteTodoChange(TodoChangedEvent.Type.UPDATED, 1L, 2L));
+        assertThat(RemoteTodoChange.parse(RemoteTodoChange.format(TodoChangedEvent.cleared())))
+                .containsExactly(RemoteTodoChange.cleared());
+    }
+
+    @Test
+    public void shouldRejectUnknownOperations() {
+        assertThatThrownBy(() -> RemoteTodoChange.parse("merge:1")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,32 @@
+package todo;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class StatementCountingDataSourceTest {
+    @Test
+    public void shouldCountStatementsPreparedOnThisThreadOnlyWhileCounting() throws Exception {
+        DataSource pool = Mockito.mock(DataSource.class);
+        Connection pooled = Mockito.mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        StatementCountingDataSource dataSource = new StatementCountingDataSource(pool);
+
+        Connection connection = dataSource.getConnection();
+        connection.prepareStatement("SELECT 1");
+
+        try (StatementCountingDataSource.Count count = StatementCountingDataSource.start()) {
+            connection.prepareStatement("SELECT 1");
+            connection.createStatement();
+            connection.commit();
+
+            assertThat(count.statements()).isEqualTo(2);
+            assertThat(connection.unwrap(Connection.class)).isSameAs(pooled);
+        }
+    }
+}
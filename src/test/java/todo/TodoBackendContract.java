@@ -0,0 +1,347 @@
+package todo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static todo.WebLayerTest.API_ROOT;
+
+/**
+ * The TodoBackend contract, written once against {@link WebTestClient} and run against
+ * both the servlet and the reactive stack by its subclasses: creating, reading, patching
+ * and deleting todos, and paging, filtering and streaming the list. Endpoints only the
+ * servlet stack has (search, reorder and move, batches, export as an array, ETags and
+ * conditional requests, compression, CBOR and Smile, the archive and the change stream)
+ * are covered by {@link MockMvcTest}.
+ */
+public abstract class TodoBackendContract {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * A client whose relative URIs resolve against {@code http://localhost}.
+     */
+    protected abstract WebTestClient client();
+
+    @AfterEach
+    public void cleanUp() {
+        client().delete().uri(API_ROOT).exchange().expectStatus().isOk();
+    }
+
+    @Test
+    public void shouldStartFullSpringContextWithoutServerAndRetrieveMessage() {
+        client().get().uri(API_ROOT + "/hello")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Hello, World!");
+    }
+
+    @Test
+    public void shouldAllowCors() {
+        client().options().uri(API_ROOT + "/hello")
+                .header("Access-Control-Request-Method", "GET")
+                .header("Origin", "http://www.somethingelse.com")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void shouldBeAbleToGetAnEmptyListOfTodos() {
+        client().get().uri(API_ROOT)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("[]");
+    }
+
+    @Test
+    public void shouldBeAbleToAddATodo() {
+        TodoResponse createdTodo = create("{ \"title\": \"test todo\" }");
+
+        TodoResponse expected = new TodoResponse(null, "test todo", false, null, null);
+
+        assertThat(createdTodo).isEqualToIgnoringNullFields(expected);
+        assertThat(createdTodo).hasNoNullFieldsOrPropertiesExcept("order");
+        assertThat(createdTodo.getTitle()).isEqualTo("test todo");
+    }
+
+    @Test
+    public void shouldBeAbleToDeleteAllExistingTodos() {
+        create("{ \"title\": \"test todo\" }");
+
+        client().delete().uri(API_ROOT)
+                .exchange()
+                .expectStatus().isOk();
+
+        client().get().uri(API_ROOT)
+                .exchange()
+                .expectBody(String.class).isEqualTo("[]");
+    }
+
+    @Test
+    public void shouldSetUpANewTodoAsInitiallyNotCompleted() {
+        assertThat(create("{ \"title\": \"test todo\" }").isCompleted()).isFalse();
+    }
+
+    @Test
+    public void shouldSetUpANewTodoWithAUniqueUrlEqualToItsId() {
+        TodoResponse createdTodo = create("{ \"title\": \"test todo\" }");
+
+        assertThat(createdTodo.getUrl()).isEqualTo("http://localhost/todos/" + createdTodo.getId());
+    }
+
+    @Test
+    public void shouldBeAbleToRetrieveATodoByItsUrl() {
+        TodoResponse newTodo = create("{ \"title\": \"test todo\" }");
+
+        TodoResponse resultTodo = client().get().uri(newTodo.getUrl())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TodoResponse.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(resultTodo).isEqualToComparingFieldByField(newTodo);
+    }
+
+    @Test
+    public void shouldBeAbleToPatchATodoWithAPartialUpdateToTitle() {
+        TodoResponse created = create("{ \"title\": \"initial title\" }");
+
+        TodoResponse editedTodo = patch(created.getUrl(), "{ \"title\": \"edited title\" }");
+
+        TodoResponse expected = new TodoResponse(created.getId(), "edited title", false,
+                null, "http://localhost/todos/" + created.getId());
+
+        assertThat(editedTodo).isEqualToComparingFieldByField(expected);
+    }
+
+    @Test
+    public void shouldBeAbleToPatchATodoWithAPartialUpdateToCompleted() {
+        TodoResponse created = create("{ \"title\": \"initial title\", \"completed\": false }");
+
+        TodoResponse edited = patch(created.getUrl(), "{ \"completed\": \"true\" }");
+
+        TodoResponse expected = new TodoResponse(created.getId(), "initial title", true, null, "http://localhost" +
+                "/todos/" + created.getId());
+
+        assertThat(edited).isEqualToComparingFieldByField(expected);
+    }
+
+    @Test
+    public void shouldReturnExitingTodoWithAnEmptyPatch() {
+        TodoResponse expected = create("{ \"title\": \"initial title\", \"completed\": true }");
+
+        TodoResponse editedTodo = patch(expected.getUrl(), "{}");
+
+        assertThat(editedTodo).isEqualToComparingFieldByField(expected);
+    }
+
+    @Test
+    public void shouldPersistChangesAndShowUpWhenReFetchingTheTodo() {
+        TodoResponse created = create("{ \"title\": \"initial title\" }");
+
+        TodoResponse expected = new TodoResponse(
+                created.getId(),
+                "changed title",
+                true,
+                null,
+                "http://localhost/todos/" + created.getId());
+
+        TodoResponse editedTodo = patch(created.getUrl(), "{ \"title\": \"changed title\", \"completed\": \"true\" }");
+
+        assertThat(editedTodo).isEqualToComparingFieldByField(expected);
+
+        List<TodoResponse> editedTodos = client().get().uri(API_ROOT)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TodoResponse.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(editedTodos.get(0)).isEqualToIgnoringNullFields(expected);
+        assertThat(editedTodos.get(0).getUrl()).isNotNull();
+    }
+
+    @Test
+    public void shouldDeleteATodoWhenMakingADeleteRequestToItsUrl() {
+        TodoResponse response = create("{ \"title\": \"test todo\" }");
+
+        client().delete().uri(response.getUrl())
+                .exchange()
+                .expectStatus().isOk();
+
+        client().get().uri(API_ROOT)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("[]");
+        client().get().uri(response.getUrl())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void shouldCreateATodoWithAnOrderField() {
+        TodoResponse newTodo = create("{ \"title\": \"test todo\", \"order\": 523}");
+
+        assertThat(newTodo.getOrder()).isEqualTo(523);
+    }
+
+    @Test
+    public void shouldPageThroughTodosUsingTheNextLink() {
+        TodoResponse first = create("{ \"title\": \"first\" }");
+        TodoResponse second = create("{ \"title\": \"second\" }");
+        TodoResponse third = create("{ \"title\": \"third\" }");
+
+        EntityExchangeResult<byte[]> firstPage = client().get().uri(API_ROOT + "?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("Link", link -> assertThat(link).contains("rel=\"next\""))
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].id").isEqualTo(first.getId())
+                .jsonPath("$[1].id").isEqualTo(second.getId())
+                .returnResult();
+
+        client().get().uri(next(firstPage))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("Link")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(third.getId());
+    }
+
+    @Test
+    public void shouldFilterAndSortTodosAndCarryTheQueryIntoTheNextLink() {
+        create("{ \"title\": \"done\", \"completed\": true, \"order\": 1 }");
+        TodoResponse later = create("{ \"title\": \"later\", \"order\": 20 }");
+        TodoResponse sooner = create("{ \"title\": \"sooner\", \"order\": 10 }");
+
+        EntityExchangeResult<byte[]> firstPage = client().get().uri(API_ROOT + "?completed=false&sort=order&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(sooner.getId())
+                .returnResult();
+
+        String next = next(firstPage);
+        assertThat(next).contains("completed=false").contains("sort=order");
+
+        client().get().uri(next)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("Link")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(later.getId());
+
+        client().get().uri(API_ROOT + "?sort=title")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void shouldCapThePageSizeAtTheServerMaximum() {
+        client().get().uri(API_ROOT + "?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client().get().uri(API_ROOT + "?limit=1000000")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void shouldStreamAllTodosAsNewlineDelimitedJson() throws Exception {
+        create("{ \"title\": \"first\" }");
+        create("{ \"title\": \"second\" }");
+
+        String body = client().get().uri(API_ROOT)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        String[] lines = body.split("\n");
+
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], TodoResponse.class).getTitle()).isEqualTo("first");
+        assertThat(objectMapper.readValue(lines[1], TodoResponse.class).getTitle()).isEqualTo("second");
+    }
+
+    @Test
+    public void shouldDeleteOnlyCompletedTodosWhenFilteredByCompleted() {
+        create("{ \"title\": \"done\", \"completed\": true }");
+        TodoResponse open = create("{ \"title\": \"not done\" }");
+
+        client().delete().uri(API_ROOT + "?completed=true")
+                .exchange()
+                .expectStatus().isOk();
+
+        client().get().uri(API_ROOT)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(open.getId());
+    }
+
+    @Test
+    public void shouldKeepTheOrderWhenAPatchDoesNotMentionIt() {
+        TodoResponse saved = create("{ \"title\": \"initial title\", \"order\": 7 }");
+
+        TodoResponse patched = patch(saved.getUrl(), "{ \"completed\": true }");
+
+        assertThat(patched.isCompleted()).isTrue();
+        assertThat(patched.getOrder()).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldReturnNotFoundWhenPatchingOrDeletingAMissingTodo() {
+        client().patch().uri(API_ROOT + "/" + Long.MAX_VALUE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"title\": \"nope\" }")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        client().delete().uri(API_ROOT + "/" + Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private TodoResponse create(String json) {
+        return client().post().uri(API_ROOT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(json)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TodoResponse.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private TodoResponse patch(String url, String json) {
+        return client().patch().uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(json)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TodoResponse.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static String next(EntityExchangeResult<?> page) {
+        String link = page.getResponseHeaders().getFirst("Link");
+        return link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+    }
+}
@@ -0,0 +1,76 @@
+package todo;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TodoCacheTest {
+    @SuppressWarnings("unchecked")
+    private final TodoCache cache = new TodoCache(100, Duration.ofMinutes(1), Mockito.mock(ObjectProvider.class));
+
+    @Test
+    public void shouldLoadATodoOnlyOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        TodoView todo = new TodoView(1L, "Clean kitchen", false, null, 0);
+
+        cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(todo);
+        });
+        Optional<TodoView> cached = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(todo);
+        });
+
+        assertThat(cached).contains(todo);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void shouldNotCacheMissingTodos() {
+        assertThat(cache.get(1L, id -> Optional.empty())).isEmpty();
+
+        TodoView todo = new TodoView(1L, "Clean kitchen", false, null, 0);
+        assertThat(cache.get(1L, id -> Optional.of(todo))).contains(todo);
+    }
+
+    @Test
+    public void shouldKeepTheNewestVersionWhenUpdatesArriveOutOfOrder() {
+        TodoView newer = new TodoView(1L, "second edit", false, null, 2);
+        TodoView older = new TodoView(1L, "first edit", false, null, 1);
+
+        cache.on(TodoChangedEvent.updated(newer));
+        cache.on(TodoChangedEvent.updated(older));
+
+        assertThat(cache.get(1L, id -> Optional.empty())).contains(newer);
+    }
+
+    @Test
+    public void shouldInvalidateOnDeleteAndClear() {
+        cache.on(TodoChangedEvent.created(new TodoView(1L, "one", false, null, 0)));
+        cache.on(TodoChangedEvent.created(new TodoView(2L, "two", false, null, 0)));
+
+        cache.on(TodoChangedEvent.deleted(1L));
+        assertThat(cache.get(1L, id -> Optional.empty())).isEmpty();
+
+        cache.on(TodoChangedEvent.cleared());
+        assertThat(cache.get(2L, id -> Optional.empty())).isEmpty();
+    }
+
+    @Test
+    public void shouldOnlyEvictTodosThatAnotherNodeMovedPastTheCachedVersion() {
+        cache.on(TodoChangedEvent.updated(new TodoView(1L, "one", false, null, 3)));
+        cache.on(TodoChangedEvent.updated(new TodoView(2L, "two", false, null, 3)));
+
+        RemoteTodoChange.parse("update:1@3,2@4").forEach(cache::on);
+
+        assertThat(cache.get(1L, id -> Optional.empty())).isPresent();
+        assertThat(cache.get(2L, id -> Optional.empty())).isEmpty();
+    }
+}
@@ -65,5 +65,30 @@ public class WebLayerTest {
         TodoRepository todoRepository() {
             return Mockito.mock(TodoRepository.class);
         }
+
+        @Bean
+        TodoExporter todoExporter() {
+            return Mockito.mock(TodoExporter.class);
+        }
+
+        @Bean
+        TodoImporter todoImporter() {
+            return Mockito.mock(TodoImporter.class);
+        }
+
+        @Bean
+        TodoCache todoCache() {
+            return Mockito.mock(TodoCache.class);
+        }
+
+        @Bean
+        TodoChangeFeed todoChangeFeed() {
+            return Mockito.mock(TodoChangeFeed.class);
+        }
+
+        @Bean
+        TodoListSnapshots todoListSnapshots() {
+            return Mockito.mock(TodoListSnapshots.class);
+        }
     }
 }